@@ -0,0 +1,90 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.Documents;
+import io.github.i49.spine.converters.Command;
+import io.github.i49.spine.converters.CommandDocumentConverter;
+
+/**
+ * Measures the procedural converter with the commands 
+ * taken from the example configurations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandDocumentConverterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sections;
+    
+    @Param({"2", "16"})
+    private int depth;
+    
+    private Document original;
+    private Document doc;
+    private CommandDocumentConverter converter;
+    
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        this.original = SyntheticDocuments.create(sections, depth);
+        this.converter = new CommandDocumentConverter();
+        addCommand("remove", "script");
+        addCommand("remove", "meta");
+        addCommand("remove", "link");
+        addCommand("unwrap", ".concept");
+        addCommand("remove", ".MCWebHelpFramesetLink");
+        addCommand("remove", ".MCBreadcrumbsBox_0");
+        addCommand("removeDataAttributes", null);
+        addCommand("addMetaCharset", "utf-8");
+    }
+    
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        this.doc = Documents.copy(original);
+    }
+    
+    @Benchmark
+    public Document convert() {
+        return converter.convert(doc);
+    }
+    
+    private void addCommand(String name, String value) {
+        Map<String, Object> params = (value != null) ? Collections.singletonMap("value", value) : null;
+        this.converter.addCommand(Command.create(name, params));
+    }
+}
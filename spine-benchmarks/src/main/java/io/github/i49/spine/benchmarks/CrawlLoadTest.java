@@ -0,0 +1,203 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import io.github.i49.spine.bootstrap.CrawlerBuilder;
+import io.github.i49.spine.crawlers.ConverterType;
+import io.github.i49.spine.crawlers.Crawler;
+import io.github.i49.spine.crawlers.CrawlerConfiguration;
+import io.github.i49.spine.crawlers.CrawlerType;
+import io.github.i49.spine.crawlers.PagingMethod;
+import javafx.application.Platform;
+import javafx.scene.web.WebEngine;
+
+/**
+ * Crawls the {@link SyntheticSite} from end to end and reports the throughput and the memory used.
+ * 
+ * <p>Options:</p>
+ * <ul>
+ * <li>{@code --pages <n>} the number of the pages, 100 by default.</li>
+ * <li>{@code --sections <n>} the number of the sections in each page, 20 by default.</li>
+ * <li>{@code --images <n>} the number of the images in each page, 2 by default.</li>
+ * <li>{@code --image-size <n>} the width and height of the images in pixels, 256 by default.</li>
+ * <li>{@code --framed} shows the pages in the content frame.</li>
+ * <li>{@code --latency <ms>} delays every response.</li>
+ * <li>{@code --error-rate <ratio>} replaces a part of the responses with server errors.</li>
+ * </ul>
+ * <p>The publication is written to the current directory. 
+ * The JavaFX toolkit requires a display, or the Monocle headless platform.</p>
+ */
+public class CrawlLoadTest {
+
+    private static final String PUBLICATION_NAME = "synthetic-site";
+    
+    public static void main(String[] args) throws Exception {
+        SyntheticSite site = createSite(Arrays.asList(args));
+        site.start(0);
+        try {
+            crawl(site);
+        } finally {
+            site.stop();
+        }
+    }
+    
+    private static void crawl(SyntheticSite site) throws Exception {
+        CrawlerConfiguration conf = createConfiguration(site);
+        CountDownLatch completed = new CountDownLatch(1);
+        boolean[] result = new boolean[1];
+        Crawler[] crawler = new Crawler[1];
+        
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+        
+        long startTime = System.nanoTime();
+        Platform.runLater(()->{
+            try {
+                crawler[0] = new CrawlerBuilder().build(conf);
+                crawler[0].setListener((c, succeeded)->{
+                    result[0] = succeeded;
+                    completed.countDown();
+                });
+                crawler[0].start(new WebEngine());
+            } catch (Exception e) {
+                e.printStackTrace();
+                completed.countDown();
+            }
+        });
+        completed.await();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        Platform.exit();
+        
+        int pages = (crawler[0] != null) ? crawler[0].getPageCount() : 0;
+        Path output = Paths.get(PUBLICATION_NAME + ".epub");
+        System.out.printf("Result:        %s%n", result[0] ? "succeeded" : "failed");
+        System.out.printf("Pages:         %d of %d%n", pages, site.getPages());
+        System.out.printf("Elapsed:       %.2f s%n", seconds);
+        System.out.printf("Throughput:    %.2f pages/s%n", pages / seconds);
+        System.out.printf("Publication:   %d bytes%n", Files.exists(output) ? Files.size(output) : 0);
+        System.out.printf("Peak heap:     %.1f MB%n", getPeakHeapUsage() / (1024.0 * 1024.0));
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean bean: ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, bean.getCollectionCount());
+            gcTime += Math.max(0, bean.getCollectionTime());
+        }
+        System.out.printf("GC:            %d collections, %d ms%n", gcCount, gcTime);
+    }
+    
+    private static CrawlerConfiguration createConfiguration(SyntheticSite site) {
+        CrawlerConfiguration conf = new CrawlerConfiguration();
+        conf.setType(site.isFramed() ? CrawlerType.FRAME : CrawlerType.BASIC);
+        conf.setPublicationName(PUBLICATION_NAME);
+        conf.setRootLocation(site.getRootLocation());
+        conf.setFirstPage(site.getFirstPage());
+        conf.setLastPage(site.getLastPage());
+        conf.setMaxPages(site.getPages());
+        if (site.isFramed()) {
+            CrawlerConfiguration.Frames frames = new CrawlerConfiguration.Frames();
+            frames.setContentFrame(SyntheticSite.CONTENT_FRAME);
+            conf.setFrames(frames);
+        }
+        conf.getPager().setMethod(PagingMethod.CLICK);
+        conf.getPager().setTarget(site.getNextButton());
+        conf.getMetadata().setTitle("Synthetic site");
+        conf.getMetadata().setLanguage("en");
+        
+        // the same commands as the Torque example.
+        List<Object> commands = new ArrayList<>();
+        commands.add(command("remove", "script"));
+        commands.add(command("remove", "meta"));
+        commands.add(command("remove", "link"));
+        commands.add(command("remove", ".MCBreadcrumbsBox_0"));
+        commands.add("removeDataAttributes");
+        commands.add(command("addMetaCharset", "utf-8"));
+        CrawlerConfiguration.Converter converter = new CrawlerConfiguration.Converter();
+        converter.setType(ConverterType.PROCEDURAL);
+        converter.setCommands(commands);
+        conf.setConverters(Collections.singletonList(converter));
+        return conf;
+    }
+    
+    private static Object command(String name, String value) {
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put(name, value);
+        return command;
+    }
+    
+    private static SyntheticSite createSite(List<String> args) {
+        SyntheticSite site = new SyntheticSite();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("--framed")) {
+                site.framed(true);
+                continue;
+            }
+            if (i + 1 >= args.size()) {
+                throw new IllegalArgumentException(arg);
+            }
+            String value = args.get(++i);
+            switch (arg) {
+            case "--pages":
+                site.pages(Integer.parseInt(value));
+                break;
+            case "--sections":
+                site.sectionsPerPage(Integer.parseInt(value));
+                break;
+            case "--images":
+                site.imagesPerPage(Integer.parseInt(value));
+                break;
+            case "--image-size":
+                site.imageSize(Integer.parseInt(value));
+                break;
+            case "--latency":
+                site.latency(Integer.parseInt(value));
+                break;
+            case "--error-rate":
+                site.errorRate(Double.parseDouble(value));
+                break;
+            default:
+                throw new IllegalArgumentException(arg);
+            }
+        }
+        return site;
+    }
+    
+    private static long getPeakHeapUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,150 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.DocumentWriter;
+import io.github.i49.spine.common.Documents;
+import io.github.i49.spine.common.HtmlDocumentWriter;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
+import javafx.scene.web.WebEngine;
+import netscape.javascript.JSObject;
+
+/**
+ * Compares the time spent on the JavaFX application thread
+ * to extract a large page from the web engine,
+ * reading the DOM node by node versus serializing the page in a single script call.
+ * 
+ * <p>{@link #serializedParsing()} measures the work moved to the worker thread
+ * by the serialized extraction. The JavaFX toolkit requires a display,
+ * or the Monocle headless platform.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+
+    private static final String SERIALIZE_SCRIPT = "new XMLSerializer().serializeToString(document.documentElement)";
+    
+    @Param({"100", "1000"})
+    private int sections;
+    
+    @Param({"16"})
+    private int depth;
+    
+    private WebEngine webEngine;
+    private DocumentWriter writer;
+    private String serialized;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        startToolkit();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.writer = new HtmlDocumentWriter();
+        this.writer.writeDocumentTo(stream, SyntheticDocuments.create(sections, depth));
+        String content = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+
+        CountDownLatch loaded = new CountDownLatch(1);
+        runOnFxThread(()->{
+            this.webEngine = new WebEngine();
+            this.webEngine.getLoadWorker().stateProperty().addListener((value, oldState, newState)->{
+                if (newState == Worker.State.SUCCEEDED) {
+                    loaded.countDown();
+                }
+            });
+            this.webEngine.loadContent(content);
+            return null;
+        });
+        loaded.await();
+        this.serialized = runOnFxThread(()->(String)this.webEngine.executeScript(SERIALIZE_SCRIPT));
+    }
+    
+    /**
+     * Saves and copies the page through the DOM of the web engine, as the crawler does by default.
+     */
+    @Benchmark
+    public Document domExtraction() throws Exception {
+        return runOnFxThread(()->{
+            Document doc = this.webEngine.getDocument();
+            this.writer.writeDocumentTo(new ByteArrayOutputStream(), doc);
+            return Documents.copy(doc);
+        });
+    }
+    
+    /**
+     * Serializes the page in a single script call.
+     */
+    @Benchmark
+    public String serializedExtraction() throws Exception {
+        return runOnFxThread(()->{
+            JSObject window = (JSObject)this.webEngine.executeScript("window");
+            return (String)window.eval(SERIALIZE_SCRIPT);
+        });
+    }
+    
+    /**
+     * Parses and saves the serialized page, which is done on the worker thread.
+     */
+    @Benchmark
+    public Document serializedParsing() throws Exception {
+        Document doc = Documents.parse(new StringReader(this.serialized));
+        this.writer.writeDocumentTo(new ByteArrayOutputStream(), doc);
+        return doc;
+    }
+    
+    private static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            // already started by the previous trial.
+            started.countDown();
+        }
+        Platform.setImplicitExit(false);
+        started.await();
+    }
+    
+    private static <T> T runOnFxThread(Callable<T> task) throws Exception {
+        FutureTask<T> future = new FutureTask<>(task);
+        Platform.runLater(future);
+        return future.get();
+    }
+}
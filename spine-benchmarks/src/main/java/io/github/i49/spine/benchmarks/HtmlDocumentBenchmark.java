@@ -0,0 +1,94 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.Documents;
+import io.github.i49.spine.common.HtmlDocument;
+
+/**
+ * Measures the operations of {@link HtmlDocument} used by the converter commands.
+ * 
+ * <p>Each invocation operates on a fresh copy of the synthetic document,
+ * which is made outside of the measurement.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HtmlDocumentBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sections;
+    
+    @Param({"2", "16"})
+    private int depth;
+    
+    private Document original;
+    private Document doc;
+    
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        this.original = SyntheticDocuments.create(sections, depth);
+    }
+    
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        this.doc = Documents.copy(original);
+    }
+    
+    @Benchmark
+    public HtmlDocument of() {
+        return HtmlDocument.of(doc);
+    }
+    
+    @Benchmark
+    public HtmlDocument remove() {
+        return HtmlDocument.of(doc).remove(".MCBreadcrumbsBox_0");
+    }
+    
+    @Benchmark
+    public HtmlDocument unwrap() {
+        return HtmlDocument.of(doc).unwrap(".concept");
+    }
+    
+    @Benchmark
+    public HtmlDocument replace() {
+        return HtmlDocument.of(doc).replace(".mdata", "section");
+    }
+    
+    @Benchmark
+    public HtmlDocument removeDataAttributes() {
+        return HtmlDocument.of(doc).removeDataAttributes();
+    }
+}
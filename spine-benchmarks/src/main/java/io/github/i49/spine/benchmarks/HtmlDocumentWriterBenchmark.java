@@ -0,0 +1,117 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stax.StAXResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.DocumentWriter;
+import io.github.i49.spine.common.HtmlDocumentWriter;
+import io.github.i49.spine.common.HtmlStreamWriter;
+
+/**
+ * Compares the direct HTML serializer with the former writer
+ * built on the identity transformer and {@link HtmlStreamWriter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HtmlDocumentWriterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sections;
+    
+    @Param({"2", "16"})
+    private int depth;
+    
+    private Document doc;
+    private ByteArrayOutputStream stream;
+    private DocumentWriter writer;
+    private Transformer transformer;
+    
+    @Setup
+    public void setUp() throws Exception {
+        this.doc = SyntheticDocuments.create(sections, depth);
+        this.stream = new ByteArrayOutputStream(1024 * 1024);
+        this.writer = new HtmlDocumentWriter();
+        this.transformer = TransformerFactory.newInstance().newTransformer();
+        this.transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        this.transformer.setOutputProperty(OutputKeys.METHOD, "xml");
+        this.transformer.setOutputProperty(OutputKeys.INDENT, "no");
+        this.transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        verify(this.doc);
+        verify(SyntheticDocuments.createPrefixed());
+    }
+    
+    /**
+     * Checks that both writers produce the same output, so that the comparison is fair.
+     */
+    private void verify(Document doc) throws Exception {
+        Document saved = this.doc;
+        this.doc = doc;
+        try {
+            transformerWriter();
+            byte[] expected = stream.toByteArray();
+            directWriter();
+            byte[] actual = stream.toByteArray();
+            if (!Arrays.equals(expected, actual)) {
+                throw new IllegalStateException("Writers differ:\n" + new String(expected, "UTF-8") + "\n" + new String(actual, "UTF-8"));
+            }
+        } finally {
+            this.doc = saved;
+        }
+    }
+    
+    @Benchmark
+    public int transformerWriter() throws Exception {
+        stream.reset();
+        XMLStreamWriter writer = new HtmlStreamWriter(XMLOutputFactory.newFactory().createXMLStreamWriter(stream, "UTF-8"));
+        transformer.transform(new DOMSource(doc), new StAXResult(writer));
+        return stream.size();
+    }
+
+    @Benchmark
+    public int directWriter() throws Exception {
+        stream.reset();
+        writer.writeDocumentTo(stream, doc);
+        return stream.size();
+    }
+}
@@ -0,0 +1,92 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.i49.spine.common.PackageDocumentBuilder;
+
+/**
+ * Measures the package document written directly to the stream
+ * as the number of the manifest items grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PackageDocumentBuilderBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int pages;
+    
+    @Param({"3"})
+    private int imagesPerPage;
+    
+    private PackageDocumentBuilder builder;
+    private ByteArrayOutputStream stream;
+    
+    @Setup
+    public void setUp() throws Exception {
+        List<Path> pageList = new ArrayList<>();
+        Map<Path, String> resources = new LinkedHashMap<>();
+        for (int i = 0; i < pages; i++) {
+            pageList.add(Paths.get("topics", "page" + i + ".html"));
+            for (int j = 0; j < imagesPerPage; j++) {
+                resources.put(Paths.get("images", "figure" + i + "-" + j + ".png"), "image/png");
+            }
+        }
+        this.builder = new PackageDocumentBuilder()
+                .identifier("urn:uuid:00000000-0000-0000-0000-000000000000")
+                .title("Synthetic publication")
+                .language("en")
+                .lastModified(OffsetDateTime.now())
+                .authors(Arrays.asList("Author"))
+                .pages(pageList)
+                .resources(resources)
+                .navigation(Paths.get("nav.xhtml"));
+        this.stream = new ByteArrayOutputStream(1024 * 1024);
+    }
+    
+    @Benchmark
+    public int writeDirectly() throws Exception {
+        stream.reset();
+        builder.writeTo(stream);
+        return stream.size();
+    }
+}
@@ -0,0 +1,126 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.i49.spine.common.CompressionPolicy;
+import io.github.i49.spine.common.HtmlDocumentWriter;
+import io.github.i49.spine.common.MediaTypeCompressionPolicy;
+import io.github.i49.spine.common.PublicationWriter;
+
+/**
+ * Measures the time to package an image-heavy publication 
+ * with different compression policies.
+ * 
+ * <p>The images are filled with random bytes, 
+ * which are as incompressible as real JPEG and PNG images.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublicationWriterBenchmark {
+
+    @Param({"deflateAll", "mediaType", "sampling"})
+    private String policy;
+    
+    @Param({"200"})
+    private int pages;
+    
+    @Param({"3"})
+    private int imagesPerPage;
+    
+    private Path baseDir;
+    private Path target;
+    private PublicationWriter writer;
+    
+    @Setup
+    public void setUp() throws Exception {
+        this.baseDir = Files.createTempDirectory("spine-benchmark");
+        this.target = Files.createTempFile("spine-benchmark", ".epub");
+        createPublication();
+        this.writer = new PublicationWriter(baseDir);
+        this.writer.setCompressionPolicy(createPolicy(policy));
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> stream = Files.walk(baseDir)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(path->path.toFile().delete());
+        }
+        Files.deleteIfExists(target);
+    }
+    
+    @Benchmark
+    public long write() throws IOException {
+        writer.writeTo(target);
+        return Files.size(target);
+    }
+    
+    private void createPublication() throws Exception {
+        Files.write(baseDir.resolve("mimetype"), "application/epub+zip".getBytes(StandardCharsets.US_ASCII));
+        Path meta = Files.createDirectories(baseDir.resolve("META-INF"));
+        Files.write(meta.resolve("container.xml"), "<container/>".getBytes(StandardCharsets.UTF_8));
+        Path content = Files.createDirectories(baseDir.resolve("EPUB"));
+        Path images = Files.createDirectories(content.resolve("images"));
+        HtmlDocumentWriter htmlWriter = new HtmlDocumentWriter();
+        Random random = new Random(42);
+        for (int i = 0; i < pages; i++) {
+            htmlWriter.writeDocumentAt(content.resolve("page" + i + ".html"), SyntheticDocuments.create(20, 4));
+            for (int j = 0; j < imagesPerPage; j++) {
+                byte[] image = new byte[50 * 1024 + random.nextInt(400 * 1024)];
+                random.nextBytes(image);
+                String extension = (j % 2 == 0) ? ".jpg" : ".png";
+                Files.write(images.resolve("figure" + i + "-" + j + extension), image);
+            }
+        }
+    }
+    
+    private static CompressionPolicy createPolicy(String name) {
+        switch (name) {
+        case "deflateAll":
+            return (entry, size, head)->Deflater.DEFAULT_COMPRESSION;
+        case "sampling":
+            return new MediaTypeCompressionPolicy().sampling(true);
+        default:
+            return new MediaTypeCompressionPolicy();
+        }
+    }
+}
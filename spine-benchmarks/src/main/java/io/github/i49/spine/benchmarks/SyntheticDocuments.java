@@ -0,0 +1,142 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import io.github.i49.spine.common.Documents;
+import io.github.i49.spine.common.HtmlSpec;
+
+/**
+ * Generator of synthetic HTML documents used by benchmarks.
+ */
+public class SyntheticDocuments {
+
+    private static final String SVG_NAMESPACE_URI = "http://www.w3.org/2000/svg";
+    private static final String XLINK_NAMESPACE_URI = "http://www.w3.org/1999/xlink";
+    private static final String MATHML_NAMESPACE_URI = "http://www.w3.org/1998/Math/MathML";
+
+    /**
+     * Creates a document which has the specified number of sections.
+     * 
+     * @param sections the number of sections in the body.
+     * @param depth the depth of the nested divisions in each section.
+     * @return created document.
+     */
+    public static Document create(int sections, int depth) {
+        Document doc = Documents.create();
+        doc.setDocumentURI("http://localhost/synthetic/page.html");
+        Element html = element(doc, "html");
+        doc.appendChild(html);
+        Element head = element(doc, "head");
+        html.appendChild(head);
+        Element title = element(doc, "title");
+        title.setTextContent("Synthetic document");
+        head.appendChild(title);
+        Element link = element(doc, "link");
+        link.setAttribute("rel", "stylesheet");
+        link.setAttribute("href", "style.css");
+        head.appendChild(link);
+        Element script = element(doc, "script");
+        script.setTextContent("if (a < b && c > d) { run(); }");
+        head.appendChild(script);
+
+        Element body = element(doc, "body");
+        html.appendChild(body);
+        for (int i = 0; i < sections; i++) {
+            body.appendChild(createSection(doc, i, depth));
+        }
+        return doc;
+    }
+    
+    /**
+     * Creates a document which has prefixed elements of foreign namespaces.
+     * 
+     * @return created document.
+     */
+    public static Document createPrefixed() {
+        Document doc = create(1, 2);
+        Element body = (Element)doc.getElementsByTagNameNS(HtmlSpec.NAMESPACE_URL, "body").item(0);
+        Element svg = doc.createElementNS(SVG_NAMESPACE_URI, "svg:svg");
+        svg.setAttribute("width", "10");
+        Element group = doc.createElementNS(SVG_NAMESPACE_URI, "svg:g");
+        Element rect = doc.createElementNS(SVG_NAMESPACE_URI, "svg:rect");
+        rect.setAttribute("width", "5");
+        group.appendChild(rect);
+        Element text = doc.createElementNS(SVG_NAMESPACE_URI, "svg:text");
+        text.setTextContent("a < b");
+        group.appendChild(text);
+        Element use = doc.createElementNS(SVG_NAMESPACE_URI, "svg:use");
+        use.setAttributeNS(XLINK_NAMESPACE_URI, "xlink:href", "#figure");
+        group.appendChild(use);
+        svg.appendChild(group);
+        body.appendChild(svg);
+        Element math = doc.createElementNS(MATHML_NAMESPACE_URI, "m:math");
+        Element mi = doc.createElementNS(MATHML_NAMESPACE_URI, "m:mi");
+        mi.setTextContent("x");
+        math.appendChild(mi);
+        body.appendChild(math);
+        return doc;
+    }
+    
+    private static Element createSection(Document doc, int index, int depth) {
+        Element section = element(doc, "div");
+        section.setAttribute("class", "section");
+        section.setAttribute("id", "s" + index);
+        section.setAttribute("data-index", Integer.toString(index));
+        
+        Element heading = element(doc, "h2");
+        heading.setTextContent("Section " + index);
+        section.appendChild(heading);
+        
+        Element parent = section;
+        for (int level = 0; level < depth; level++) {
+            Element div = element(doc, "div");
+            div.setAttribute("class", (level % 2 == 0) ? "mdata" : "concept");
+            div.setAttribute("data-level", Integer.toString(level));
+            parent.appendChild(div);
+            parent = div;
+        }
+        
+        Element p = element(doc, "p");
+        p.appendChild(doc.createTextNode("Lorem ipsum dolor sit amet, consectetur adipiscing elit & "));
+        Element em = element(doc, "em");
+        em.setTextContent("élève 日本語");
+        p.appendChild(em);
+        p.appendChild(element(doc, "br"));
+        p.appendChild(doc.createTextNode(" sed do eiusmod tempor incididunt ut labore et dolore magna aliqua."));
+        parent.appendChild(p);
+        
+        Element img = element(doc, "img");
+        img.setAttribute("src", "images/figure" + index + ".png");
+        img.setAttribute("alt", "Figure " + index);
+        parent.appendChild(img);
+        
+        Element nav = element(doc, "div");
+        nav.setAttribute("class", "MCBreadcrumbsBox_0");
+        nav.setTextContent("Home > Section " + index);
+        section.appendChild(nav);
+        return section;
+    }
+    
+    private static Element element(Document doc, String name) {
+        return doc.createElementNS(HtmlSpec.NAMESPACE_URL, name);
+    }
+    
+    private SyntheticDocuments() {
+    }
+}
@@ -0,0 +1,299 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server which generates a synthetic site to be crawled.
+ * 
+ * <p>The site is served under {@code /site/} and consists of the following resources.</p>
+ * <ul>
+ * <li>{@code pages/page<n>.html}, each of which has a "next" button moving to the following page.</li>
+ * <li>{@code index.html}, which shows the pages in the content frame when the site is framed,
+ * like the layout of the Torque example.</li>
+ * <li>{@code images/figure<n>-<m>.png} referenced by the pages.</li>
+ * </ul>
+ * <p>Every response can be delayed, and a part of the responses can be replaced with server errors.</p>
+ */
+public class SyntheticSite {
+
+    public static final String SITE_PATH = "/site/";
+    public static final String CONTENT_FRAME = "#topic";
+    public static final String NEXT_BUTTON = "button.next";
+    public static final String FRAMED_NEXT_BUTTON = "button.next-topic-button";
+    
+    private static final Pattern PAGE_PATTERN = Pattern.compile("pages/page(\\d+)\\.html");
+    private static final Pattern IMAGE_PATTERN = Pattern.compile("images/figure(\\d+)-(\\d+)\\.png");
+    
+    private int pages = 100;
+    private int sectionsPerPage = 20;
+    private int imagesPerPage = 2;
+    private int imageSize = 256;
+    private boolean framed;
+    private int latency;
+    private double errorRate;
+    
+    private HttpServer server;
+    private ExecutorService executor;
+    private Random random;
+    private byte[] image;
+    
+    public SyntheticSite pages(int pages) {
+        this.pages = pages;
+        return this;
+    }
+    
+    /**
+     * Specifies the size of each page.
+     * 
+     * @param sectionsPerPage the number of the sections in each page.
+     * @return this site.
+     */
+    public SyntheticSite sectionsPerPage(int sectionsPerPage) {
+        this.sectionsPerPage = sectionsPerPage;
+        return this;
+    }
+    
+    public SyntheticSite imagesPerPage(int imagesPerPage) {
+        this.imagesPerPage = imagesPerPage;
+        return this;
+    }
+    
+    /**
+     * Specifies the size of the images.
+     * 
+     * @param imageSize the width and the height of the images in pixels.
+     * @return this site.
+     */
+    public SyntheticSite imageSize(int imageSize) {
+        this.imageSize = imageSize;
+        return this;
+    }
+    
+    public SyntheticSite framed(boolean framed) {
+        this.framed = framed;
+        return this;
+    }
+    
+    /**
+     * Specifies the delay of every response.
+     * 
+     * @param latency the delay in milliseconds.
+     * @return this site.
+     */
+    public SyntheticSite latency(int latency) {
+        this.latency = latency;
+        return this;
+    }
+    
+    /**
+     * Specifies the ratio of the responses replaced with server errors.
+     * 
+     * @param errorRate the ratio between 0 and 1.
+     * @return this site.
+     */
+    public SyntheticSite errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+    
+    public int getPages() {
+        return pages;
+    }
+    
+    public boolean isFramed() {
+        return framed;
+    }
+    
+    /**
+     * Starts the server on the loopback address.
+     * 
+     * @param port the port of the server, or 0 to use any free port.
+     * @throws IOException if the server could not be started.
+     */
+    public void start(int port) throws IOException {
+        this.random = new Random(42);
+        this.image = createImage(imageSize);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext(SITE_PATH, this::handle);
+        // requests are handled concurrently, so that the latency of a request does not delay the others.
+        this.executor = Executors.newCachedThreadPool(task->{
+            Thread thread = new Thread(task, "synthetic-site");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+    
+    public void stop() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+    
+    /**
+     * Returns the root location of the site.
+     * 
+     * @return the location ending with a slash.
+     */
+    public String getRootLocation() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort() + SITE_PATH;
+    }
+    
+    public String getFirstPage() {
+        return getRootLocation() + (framed ? "index.html" : pagePath(0));
+    }
+    
+    /**
+     * Returns the selector of the button which moves to the next page.
+     * 
+     * @return the selector of the button.
+     */
+    public String getNextButton() {
+        return framed ? FRAMED_NEXT_BUTTON : NEXT_BUTTON;
+    }
+    
+    public String getLastPage() {
+        String last = pagePath(pages - 1);
+        return getRootLocation() + (framed ? "index.html#" + last : last);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (errorRate > 0 && nextDouble() < errorRate) {
+                respond(exchange, 500, "text/plain", "Injected error".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath().substring(SITE_PATH.length());
+            Matcher m;
+            if (framed && path.equals("index.html")) {
+                respond(exchange, 200, "text/html", html(createFrameset()));
+            } else if ((m = PAGE_PATTERN.matcher(path)).matches() && Integer.parseInt(m.group(1)) < pages) {
+                respond(exchange, 200, "text/html", html(createPage(Integer.parseInt(m.group(1)))));
+            } else if ((m = IMAGE_PATTERN.matcher(path)).matches()) {
+                respond(exchange, 200, "image/png", this.image);
+            } else {
+                respond(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.US_ASCII));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+    
+    private String createFrameset() {
+        StringBuilder b = new StringBuilder();
+        b.append("<!DOCTYPE html>\n<html><head><title>Synthetic site</title>\n");
+        b.append("<script>\n");
+        b.append("var current = 0;\n");
+        b.append("function show() {\n");
+        b.append("  var page = 'pages/page' + current + '.html';\n");
+        b.append("  location.hash = page;\n");
+        b.append("  document.getElementById('topic').src = page;\n");
+        b.append("}\n");
+        b.append("function next() {\n");
+        b.append("  current++;\n");
+        b.append("  show();\n");
+        b.append("}\n");
+        b.append("</script></head>\n");
+        // the first topic is shown by the script once the frameset was loaded, as the WebHelp of the Torque example does.
+        b.append("<body onload=\"show()\">\n");
+        b.append("<div class=\"toolbar\"><button class=\"next-topic-button\" onclick=\"next()\">Next</button></div>\n");
+        b.append("<iframe id=\"topic\"></iframe>\n");
+        b.append("</body></html>\n");
+        return b.toString();
+    }
+    
+    private String createPage(int index) {
+        StringBuilder b = new StringBuilder();
+        b.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Page ").append(index).append("</title>\n");
+        b.append("<link rel=\"stylesheet\" href=\"../style.css\">\n");
+        b.append("<script>var loaded = true;</script></head>\n<body>\n");
+        b.append("<div class=\"MCBreadcrumbsBox_0\">Home &gt; Page ").append(index).append("</div>\n");
+        b.append("<h1 id=\"top\">Page ").append(index).append("</h1>\n");
+        for (int i = 0; i < sectionsPerPage; i++) {
+            b.append("<div class=\"section\" data-index=\"").append(i).append("\">\n");
+            b.append("<h2 id=\"s").append(i).append("\">Section ").append(i).append("</h2>\n");
+            b.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit &amp; <em>élève</em> ");
+            b.append("sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.</p>\n");
+            b.append("</div>\n");
+        }
+        for (int i = 0; i < imagesPerPage; i++) {
+            b.append("<p><img src=\"../images/figure").append(index).append('-').append(i).append(".png\" alt=\"Figure\"></p>\n");
+        }
+        if (!framed && index + 1 < pages) {
+            b.append("<button class=\"next\" onclick=\"location.href='page").append(index + 1).append(".html'\">Next</button>\n");
+        }
+        b.append("</body></html>\n");
+        return b.toString();
+    }
+    
+    private static String pagePath(int index) {
+        return "pages/page" + index + ".html";
+    }
+    
+    private static byte[] html(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static void respond(HttpExchange exchange, int status, String mediaType, byte[] body) throws IOException {
+        String contentType = mediaType.startsWith("text/") ? mediaType + "; charset=utf-8" : mediaType;
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private static byte[] createImage(int size) throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", stream);
+        return stream.toByteArray();
+    }
+}
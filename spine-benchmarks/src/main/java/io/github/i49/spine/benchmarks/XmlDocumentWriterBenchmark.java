@@ -0,0 +1,71 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.DocumentWriter;
+import io.github.i49.spine.common.XmlDocumentWriter;
+
+/**
+ * Measures the writer of the XML documents, such as the package document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XmlDocumentWriterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int sections;
+    
+    @Param({"2", "16"})
+    private int depth;
+    
+    private Document doc;
+    private ByteArrayOutputStream stream;
+    private DocumentWriter writer;
+    
+    @Setup
+    public void setUp() throws Exception {
+        this.doc = SyntheticDocuments.create(sections, depth);
+        this.stream = new ByteArrayOutputStream(1024 * 1024);
+        this.writer = new XmlDocumentWriter();
+    }
+    
+    @Benchmark
+    public int write() throws Exception {
+        stream.reset();
+        writer.writeDocumentTo(stream, doc);
+        return stream.size();
+    }
+}
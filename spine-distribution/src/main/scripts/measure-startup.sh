@@ -0,0 +1,40 @@
+#!/bin/bash
+#
+# Measures the time to the first page saved by the plain launch with the installed JDK
+# and by spine.sh, which uses the runtime image and the class-data sharing archive if available.
+
+if [ $# -eq 0 ]; then
+    echo "Usage: measure-startup.sh <configuration> [runs]"
+    exit 1
+fi
+
+CONF=$1
+RUNS=$2
+if [ -z "$RUNS" ]; then
+    RUNS=5
+fi
+
+first_page() {
+    "$@" 2>&1 | sed -n 's/.*First page was saved \([0-9]*\) ms.*/\1/p' | head -n 1
+}
+
+measure() {
+    local label=$1
+    shift
+    local total=0
+    local count=0
+    for i in $(seq "$RUNS"); do
+        local ms=$(first_page "$@")
+        if [ -n "$ms" ]; then
+            echo "$label run $i: $ms ms"
+            total=$((total + ms))
+            count=$((count + 1))
+        fi
+    done
+    if [ $count -gt 0 ]; then
+        echo "$label average: $((total / count)) ms"
+    fi
+}
+
+measure "plain" java -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher "$CONF"
+measure "image" ./spine.sh "$CONF"
@@ -0,0 +1,13 @@
+@echo off
+rem Generates the class-data sharing archive (lib\spine.jsa) from a training crawl,
+rem which is used by spine.bat in the following runs.
+rem Requires JDK 13 or later.
+setlocal
+if "%~1"=="" (
+    echo Usage: spine-cds.bat ^<training configuration^>
+    exit /b 1
+)
+set JAVA=java
+if exist runtime\bin\java.exe set JAVA=runtime\bin\java
+if exist lib\spine.jsa del lib\spine.jsa
+%JAVA% -XX:ArchiveClassesAtExit=lib\spine.jsa -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher %*
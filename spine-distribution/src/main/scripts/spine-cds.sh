@@ -0,0 +1,18 @@
+#!/bin/bash
+#
+# Generates the class-data sharing archive (lib/spine.jsa) from a training crawl,
+# which is used by spine.sh in the following runs.
+# Requires JDK 13 or later.
+
+if [ $# -eq 0 ]; then
+    echo "Usage: spine-cds.sh <training configuration>"
+    exit 1
+fi
+
+JAVA=java
+if [ -x runtime/bin/java ]; then
+    JAVA=runtime/bin/java
+fi
+rm -f lib/spine.jsa
+
+$JAVA -XX:ArchiveClassesAtExit=lib/spine.jsa -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher "$@"
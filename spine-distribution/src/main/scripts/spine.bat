@@ -1,2 +1,7 @@
 @echo off
-java -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher %*
+setlocal
+set JAVA=java
+set OPTIONS=
+if exist runtime\bin\java.exe set JAVA=runtime\bin\java
+if exist lib\spine.jsa set OPTIONS=-XX:SharedArchiveFile=lib\spine.jsa
+%JAVA% %OPTIONS% -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher %*
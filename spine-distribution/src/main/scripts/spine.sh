@@ -1,3 +1,12 @@
-#!/bin/bash
-
-java -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher "$@"
+#!/bin/bash
+
+JAVA=java
+OPTIONS=
+if [ -x runtime/bin/java ]; then
+    JAVA=runtime/bin/java
+fi
+if [ -f lib/spine.jsa ]; then
+    OPTIONS=-XX:SharedArchiveFile=lib/spine.jsa
+fi
+
+$JAVA $OPTIONS -p lib --add-modules java.sql --add-opens java.desktop/java.beans=snakeyaml -m spine/io.github.i49.spine.bootstrap.Launcher "$@"
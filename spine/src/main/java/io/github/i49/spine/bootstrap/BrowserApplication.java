@@ -16,72 +16,129 @@
 package io.github.i49.spine.bootstrap;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import javafx.stage.Stage;
 
-import org.yaml.snakeyaml.Yaml;
-
-import io.github.i49.spine.crawlers.Crawler;
-import io.github.i49.spine.crawlers.CrawlerConfiguration;
-import io.github.i49.spine.crawlers.CrawlerException;
 import io.github.i49.spine.message.Message;
 
 /**
  * Web browser application.
+ * 
+ * <p>The application accepts multiple configurations or directories containing them,
+ * and builds the publications one after another, 
+ * or with as many concurrent crawlers as given by {@code --parallel}.
+ * All crawlers share the same toolkit, and each web engine is reused by the following crawlers.</p>
+ * 
+ * <p>With {@code --serve <port>}, the application keeps running 
+ * and accepts the jobs submitted to the local HTTP endpoint instead.</p>
  */
 public class BrowserApplication extends Application {
 
     private static final Logger log = Logger.getLogger(BrowserApplication.class.getName());
-    private static final String DEFAULT_CONFIGURATION_NAME = "crawler.yaml";
+    private static final String PARALLEL_OPTION = "--parallel";
+    private static final String SERVE_OPTION = "--serve";
+    private static final int MAX_QUEUED_JOBS = 100;
     
-    private boolean initialized;
-    private Crawler crawler;
+    private final List<Path> configurations = new ArrayList<>();
+    private int parallelism = 1;
+    private int port = -1;
+    private CrawlerScheduler scheduler;
+    private JobServer server;
+    private long startTime;
     
     @Override
     public void init() throws Exception {
         try {
-            List<String> args = getParameters().getRaw();
-            String confPath = (args.size() > 0) ? args.get(0) : DEFAULT_CONFIGURATION_NAME;
-            
-            CrawlerConfiguration configuration = loadCrawlerConfiguration(Paths.get(confPath));
-            CrawlerBuilder builder = new CrawlerBuilder();
-            this.crawler = builder.build(configuration);
-            if (this.crawler == null) {
-                return;
+            List<String> args = new ArrayList<>(getParameters().getRaw());
+            String parallel = Options.take(args, PARALLEL_OPTION);
+            if (parallel != null) {
+                this.parallelism = Math.max(1, Integer.parseInt(parallel));
+            }
+            String serve = Options.take(args, SERVE_OPTION);
+            if (serve != null) {
+                this.port = Integer.parseInt(serve);
+            } else {
+                this.configurations.addAll(ConfigurationLoader.collect(args));
             }
-            initialized = true;
         } catch (Exception e) {
             log.severe(e.getMessage());
-            initialized = false;
+            this.configurations.clear();
+            this.port = -1;
         }
     }
     
     @Override
     public void start(Stage primaryStage) throws Exception {
-        if (!initialized) {
+        boolean serving = (this.port >= 0);
+        if (!serving && this.configurations.isEmpty()) {
             Platform.runLater(this::stop);
             return;
         }
         
-        WebView webView = new WebView();
-        crawler.start(webView.getEngine());
+        int total = this.configurations.size();
+        int slots = serving ? this.parallelism : Math.min(this.parallelism, total);
+        if (total > 1) {
+            log.info(Message.BATCH_STARTED.with(total, slots));
+        }
+        this.startTime = System.nanoTime();
         
-        primaryStage.setScene(new Scene(webView, 800, 800));
+        List<WebView> webViews = new ArrayList<>();
+        List<WebEngine> webEngines = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            WebView webView = new WebView();
+            webViews.add(webView);
+            webEngines.add(webView.getEngine());
+        }
+        if (slots == 1) {
+            primaryStage.setScene(new Scene(webViews.get(0), 800, 800));
+        } else {
+            TabPane tabs = new TabPane();
+            for (int i = 0; i < slots; i++) {
+                Tab tab = new Tab(String.valueOf(i + 1), webViews.get(i));
+                tab.setClosable(false);
+                tabs.getTabs().add(tab);
+            }
+            primaryStage.setScene(new Scene(tabs, 800, 800));
+        }
         primaryStage.show();
+        
+        if (serving) {
+            this.scheduler = new CrawlerScheduler(webEngines, MAX_QUEUED_JOBS);
+            this.server = new JobServer(this.scheduler, this.port);
+            // the toolkit keeps running even if the window was closed.
+            Platform.setImplicitExit(false);
+            this.server.start();
+        } else {
+            this.scheduler = new CrawlerScheduler(webEngines, Integer.MAX_VALUE);
+            this.scheduler.setIdleHandler(()->{
+                summarize();
+                Platform.exit();
+            });
+            for (Path path: this.configurations) {
+                String name = ConfigurationLoader.getPublicationName(path);
+                this.scheduler.submit(name, 0, ()->ConfigurationLoader.load(path));
+            }
+        }
     }
     
     @Override
     public void stop() {
+        if (this.server != null) {
+            this.server.stop();
+        }
         try {
             super.stop();
         } catch (Exception e) {
@@ -89,25 +146,30 @@ public class BrowserApplication extends Application {
         Platform.exit();
     }
     
-    private static CrawlerConfiguration loadCrawlerConfiguration(Path path) {
-        Yaml yaml = new Yaml();
-        try (InputStream input = Files.newInputStream(path)) {
-            CrawlerConfiguration conf = yaml.loadAs(input, CrawlerConfiguration.class);
-            conf.setPublicationName(getPublicationName(path));
-            return conf;
-        } catch (IOException e) {
-            throw new CrawlerException(Message.CRAWLER_CONFIGURATION_NOT_FOUND.with(path), e);
+    private void summarize() {
+        if (this.configurations.size() <= 1) {
+            return;
         }
+        int succeeded = 0;
+        for (CrawlerJob job: this.scheduler.getJobs()) {
+            double seconds = job.getElapsed() / 1e9;
+            if (job.getStatus() == CrawlerJob.Status.SUCCEEDED) {
+                succeeded++;
+                long size = getPublicationSize(job.getOutput());
+                log.info(Message.PUBLICATION_SUCCEEDED.with(job.getName(), job.getPages(), size, seconds));
+            } else {
+                log.warning(Message.PUBLICATION_FAILED.with(job.getName(), job.getPages(), seconds));
+            }
+        }
+        double seconds = (System.nanoTime() - this.startTime) / 1e9;
+        log.info(Message.BATCH_COMPLETED.with(succeeded, this.configurations.size(), seconds));
     }
     
-    private static String getPublicationName(Path path) {
-        String fileName = path.getFileName().toString();
-        int lastIndex = fileName.lastIndexOf('.');
-        if (lastIndex >= 0) {
-            return fileName.substring(0, lastIndex);
-        } else {
-            return fileName;
+    private static long getPublicationSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
         }
     }
 }
-
@@ -0,0 +1,165 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.bootstrap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+
+import io.github.i49.spine.crawlers.CrawlerConfiguration;
+import io.github.i49.spine.crawlers.CrawlerException;
+import io.github.i49.spine.message.Message;
+
+/**
+ * Loader of crawler configurations written in YAML.
+ */
+class ConfigurationLoader {
+
+    static final String DEFAULT_CONFIGURATION_NAME = "crawler.yaml";
+    
+    static CrawlerConfiguration load(Path path) {
+        try (InputStream input = Files.newInputStream(path)) {
+            CrawlerConfiguration conf = load(input, getPublicationName(path));
+            resolveStylesheets(conf, path.toAbsolutePath().getParent());
+            return conf;
+        } catch (IOException e) {
+            throw new CrawlerException(Message.CRAWLER_CONFIGURATION_NOT_FOUND.with(path), e);
+        }
+    }
+    
+    /**
+     * Loads the configuration from the stream.
+     * 
+     * @param input the stream of the configuration.
+     * @param publicationName the name of the publication to be built.
+     * @return loaded configuration.
+     */
+    static CrawlerConfiguration load(InputStream input, String publicationName) {
+        Yaml yaml = new Yaml(new ConfigurationConstructor());
+        CrawlerConfiguration conf = yaml.loadAs(input, CrawlerConfiguration.class);
+        if (conf == null) {
+            throw new CrawlerException(Message.CRAWLER_CONFIGURATION_EMPTY.with(publicationName));
+        }
+        conf.setPublicationName(publicationName);
+        return conf;
+    }
+    
+    /**
+     * Resolves the paths of the stylesheets relative to the directory of the configuration.
+     */
+    private static void resolveStylesheets(CrawlerConfiguration conf, Path baseDirectory) {
+        for (CrawlerConfiguration.Converter converter: conf.getConverters()) {
+            String stylesheet = converter.getStylesheet();
+            if (stylesheet != null && baseDirectory != null) {
+                converter.setStylesheet(baseDirectory.resolve(stylesheet).toString());
+            }
+        }
+    }
+    
+    /**
+     * Requires the paths of the stylesheets to be absolute,
+     * because the configuration has no directory to resolve them against.
+     * 
+     * @param conf the configuration loaded from the stream.
+     * @throws CrawlerException if any stylesheet was specified with a relative path.
+     */
+    static void requireAbsoluteStylesheets(CrawlerConfiguration conf) {
+        for (CrawlerConfiguration.Converter converter: conf.getConverters()) {
+            String stylesheet = converter.getStylesheet();
+            if (stylesheet != null && !Paths.get(stylesheet).isAbsolute()) {
+                throw new CrawlerException(Message.STYLESHEET_NOT_ABSOLUTE.with(stylesheet));
+            }
+        }
+    }
+    
+    /**
+     * Collects the configurations given as files or directories.
+     * A directory is expanded into the YAML files directly in it, in the order of their names.
+     * 
+     * @param names the names of the files or directories.
+     * @return the paths of the configurations, or the default configuration if no names were given.
+     * @throws IOException if an error occurred while reading the directories.
+     */
+    static List<Path> collect(List<String> names) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (names.isEmpty()) {
+            paths.add(Paths.get(DEFAULT_CONFIGURATION_NAME));
+            return paths;
+        }
+        for (String name: names) {
+            Path path = Paths.get(name);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    paths.addAll(children.filter(ConfigurationLoader::isConfiguration)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+    
+    private static boolean isConfiguration(Path path) {
+        String fileName = path.getFileName().toString();
+        return Files.isRegularFile(path) && (fileName.endsWith(".yaml") || fileName.endsWith(".yml"));
+    }
+    
+    static String getPublicationName(Path path) {
+        String fileName = path.getFileName().toString();
+        int lastIndex = fileName.lastIndexOf('.');
+        if (lastIndex >= 0) {
+            return fileName.substring(0, lastIndex);
+        } else {
+            return fileName;
+        }
+    }
+    
+    private ConfigurationLoader() {
+    }
+    
+    /**
+     * Constructor which creates only the configuration and its nested types.
+     * Global tags naming any other class are rejected, 
+     * because the configuration may be received from the job server.
+     */
+    private static class ConfigurationConstructor extends Constructor {
+        
+        ConfigurationConstructor() {
+            super(CrawlerConfiguration.class);
+        }
+        
+        @Override
+        protected Class<?> getClassForName(String name) throws ClassNotFoundException {
+            String root = CrawlerConfiguration.class.getName();
+            if (name.equals(root) || name.startsWith(root + "$")) {
+                return super.getClassForName(name);
+            }
+            throw new ClassNotFoundException(name);
+        }
+    }
+}
@@ -16,19 +16,28 @@
 
 package io.github.i49.spine.bootstrap;
 
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 import io.github.i49.spine.converters.Command;
 import io.github.i49.spine.converters.CommandDocumentConverter;
 import io.github.i49.spine.converters.DocumentConverter;
+import io.github.i49.spine.converters.ScriptDocumentConverter;
+import io.github.i49.spine.converters.StreamCommand;
+import io.github.i49.spine.converters.StreamingDocumentConverter;
+import io.github.i49.spine.converters.XsltDocumentConverter;
 import io.github.i49.spine.crawlers.BasicCrawler;
 import io.github.i49.spine.crawlers.Crawler;
 import io.github.i49.spine.crawlers.CrawlerConfiguration;
+import io.github.i49.spine.crawlers.CrawlerException;
 import io.github.i49.spine.crawlers.CrawlerType;
 import io.github.i49.spine.crawlers.FrameCrawler;
+import io.github.i49.spine.crawlers.Rebuilder;
 import io.github.i49.spine.crawlers.CrawlerConfiguration.Converter;
 import io.github.i49.spine.message.Message;
 
@@ -45,10 +54,25 @@ public class CrawlerBuilder {
             return null;
         }
         crawler.configure(conf);
-        addConverters(crawler, conf.getConverters());
+        addConverters(crawler::addConverter, conf.getConverters());
         return crawler;
     }
 
+    /**
+     * Builds a rebuilder which converts the pages saved by the previous crawl
+     * without accessing the network.
+     * 
+     * @param conf the configuration of the crawler.
+     * @return built rebuilder.
+     * @throws Exception if an error occurred while building the rebuilder.
+     */
+    public Rebuilder buildRebuilder(CrawlerConfiguration conf) throws Exception {
+        Rebuilder rebuilder = new Rebuilder();
+        rebuilder.configure(conf);
+        addConverters(rebuilder::addConverter, conf.getConverters());
+        return rebuilder;
+    }
+
     private static Crawler createCrawler(CrawlerType type) {
         switch (type) {
         case BASIC:
@@ -61,11 +85,11 @@ public class CrawlerBuilder {
         }
     }
     
-    private void addConverters(Crawler crawler, List<Converter> configurations) {
+    private void addConverters(Consumer<DocumentConverter> target, List<Converter> configurations) {
         for (Converter c: configurations) {
             DocumentConverter converter = createDocumentConverter(c);
             if (converter != null) {
-                crawler.addConverter(converter);
+                target.accept(converter);
             }
         }
     }
@@ -74,6 +98,12 @@ public class CrawlerBuilder {
         switch (conf.getType()) {
         case PROCEDURAL:
             return createCommandConverter(conf);
+        case STREAMING:
+            return createStreamingConverter(conf);
+        case XSLT:
+            return createXsltConverter(conf);
+        case SCRIPT:
+            return createScriptConverter(conf);
         default:
             return null;
         }
@@ -82,13 +112,49 @@ public class CrawlerBuilder {
     private DocumentConverter createCommandConverter(Converter conf) {
         CommandDocumentConverter converter = new CommandDocumentConverter();
         for (Object command: conf.getCommands()) {
-            converter.addCommand(createConverterCommand(command));
+            converter.addCommand(createConverterCommand(command, Command::create));
         }
         return converter;
     }
     
+    private DocumentConverter createStreamingConverter(Converter conf) {
+        StreamingDocumentConverter converter = new StreamingDocumentConverter();
+        for (Object command: conf.getCommands()) {
+            StreamCommand created = createConverterCommand(command, StreamCommand::create);
+            if (created != null) {
+                converter.addCommand(created);
+            } else {
+                log.warning(Message.UNSUPPORTED_CONVERTER_COMMAND.with(command));
+            }
+        }
+        if (!converter.isStreamable()) {
+            log.warning(Message.CONVERTER_NOT_STREAMABLE.toString());
+        }
+        return converter;
+    }
+    
+    private DocumentConverter createXsltConverter(Converter conf) {
+        String stylesheet = conf.getStylesheet();
+        if (stylesheet == null) {
+            throw new CrawlerException(Message.STYLESHEET_NOT_SPECIFIED.toString());
+        }
+        try {
+            return new XsltDocumentConverter(XsltDocumentConverter.compile(Paths.get(stylesheet)), conf.getParameters());
+        } catch (Exception e) {
+            throw new CrawlerException(Message.STYLESHEET_NOT_COMPILED.with(stylesheet), e);
+        }
+    }
+    
+    private DocumentConverter createScriptConverter(Converter conf) {
+        String script = conf.getScript();
+        if (script == null) {
+            throw new CrawlerException(Message.SCRIPT_NOT_SPECIFIED.toString());
+        }
+        return new ScriptDocumentConverter(script);
+    }
+    
     @SuppressWarnings("unchecked")
-    private Command createConverterCommand(Object conf) {
+    private <T> T createConverterCommand(Object conf, BiFunction<String, Map<String, Object>, T> factory) {
         String name = null;
         Map<String, Object> params = null;
         if (conf instanceof String) {
@@ -109,6 +175,6 @@ public class CrawlerBuilder {
                 return null;
             }
         }
-        return Command.create(name, params);
+        return factory.apply(name, params);
     }
 }
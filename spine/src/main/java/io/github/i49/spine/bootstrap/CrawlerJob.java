@@ -0,0 +1,134 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.bootstrap;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import io.github.i49.spine.crawlers.CrawlerConfiguration;
+import io.github.i49.spine.crawlers.LayoutPolicy;
+
+/**
+ * Job which builds a publication with a crawler.
+ * 
+ * <p>The status of the job can be read by any thread.</p>
+ */
+class CrawlerJob {
+
+    enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+    
+    private final int id;
+    private final String name;
+    private final int priority;
+    private final Supplier<CrawlerConfiguration> configuration;
+    
+    private volatile Status status;
+    private volatile int pages;
+    private volatile long startTime;
+    private volatile long elapsed;
+    
+    /**
+     * Constructs this job.
+     * 
+     * @param id the identifier of the job.
+     * @param name the name of the publication.
+     * @param priority the priority of the job, higher priority jobs are started first.
+     * @param configuration the supplier of the crawler configuration, called when the job is started.
+     */
+    CrawlerJob(int id, String name, int priority, Supplier<CrawlerConfiguration> configuration) {
+        this.id = id;
+        this.name = name;
+        this.priority = priority;
+        this.configuration = configuration;
+        this.status = Status.QUEUED;
+    }
+    
+    int getId() {
+        return id;
+    }
+    
+    String getName() {
+        return name;
+    }
+    
+    int getPriority() {
+        return priority;
+    }
+    
+    Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * Returns the number of the pages added to the publication.
+     * 
+     * @return the number of the pages, which is available after the job has completed.
+     */
+    int getPages() {
+        return pages;
+    }
+    
+    /**
+     * Returns the time elapsed since the job was started.
+     * 
+     * @return the elapsed time in nanoseconds.
+     */
+    long getElapsed() {
+        if (status == Status.RUNNING) {
+            return System.nanoTime() - startTime;
+        }
+        return elapsed;
+    }
+    
+    /**
+     * Returns the path of the publication file to be generated by this job.
+     * 
+     * @return the absolute path of the publication file.
+     */
+    Path getOutput() {
+        return new LayoutPolicy(Paths.get("."), name).getPublicationFile().toAbsolutePath().normalize();
+    }
+    
+    boolean isCompleted() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+    
+    CrawlerConfiguration loadConfiguration() {
+        return configuration.get();
+    }
+    
+    void started() {
+        this.startTime = System.nanoTime();
+        this.status = Status.RUNNING;
+    }
+    
+    void completed(boolean succeeded, int pages) {
+        this.pages = pages;
+        this.elapsed = System.nanoTime() - startTime;
+        this.status = succeeded ? Status.SUCCEEDED : Status.FAILED;
+    }
+    
+    void cancelled() {
+        this.status = Status.CANCELLED;
+    }
+}
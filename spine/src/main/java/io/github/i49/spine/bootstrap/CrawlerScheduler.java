@@ -0,0 +1,223 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.bootstrap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javafx.application.Platform;
+import javafx.scene.web.WebEngine;
+
+import io.github.i49.spine.crawlers.Crawler;
+import io.github.i49.spine.crawlers.CrawlerConfiguration;
+
+/**
+ * Scheduler which runs crawler jobs on a fixed pool of web engines.
+ * 
+ * <p>At most one job runs on each web engine at a time, which limits the concurrency of the jobs.
+ * Queued jobs are started in the order of their priorities and then in the order of their submission.
+ * Jobs building the same publication never run at the same time.</p>
+ * 
+ * <p>Jobs can be submitted by any thread, 
+ * while the crawlers are always started on the JavaFX application thread.</p>
+ */
+class CrawlerScheduler {
+
+    private static final Logger log = Logger.getLogger(CrawlerScheduler.class.getName());
+    // the number of the completed jobs kept for the queries.
+    private static final int MAX_COMPLETED_JOBS = 100;
+    
+    private final List<WebEngine> idleEngines;
+    private final int engineCount;
+    private final int maxQueuedJobs;
+    private final PriorityQueue<CrawlerJob> queue;
+    private final Set<String> runningNames;
+    private final Map<Integer, CrawlerJob> jobs;
+    private final AtomicInteger lastId;
+    private Runnable idleHandler;
+    
+    /**
+     * Constructs this scheduler.
+     * 
+     * @param engines the web engines to be reused by the jobs.
+     * @param maxQueuedJobs the maximum number of the jobs waiting in the queue.
+     */
+    CrawlerScheduler(List<WebEngine> engines, int maxQueuedJobs) {
+        this.idleEngines = new ArrayList<>(engines);
+        this.engineCount = engines.size();
+        this.maxQueuedJobs = maxQueuedJobs;
+        this.queue = new PriorityQueue<>(Comparator.comparingInt(CrawlerJob::getPriority).reversed()
+                .thenComparingInt(CrawlerJob::getId));
+        this.runningNames = new HashSet<>();
+        this.jobs = new ConcurrentSkipListMap<>();
+        this.lastId = new AtomicInteger();
+    }
+    
+    /**
+     * Specifies the handler called on the JavaFX application thread
+     * when all jobs have completed and no jobs are waiting.
+     * 
+     * @param idleHandler the handler to be called.
+     */
+    void setIdleHandler(Runnable idleHandler) {
+        this.idleHandler = idleHandler;
+    }
+    
+    /**
+     * Submits a job.
+     * 
+     * @param name the name of the publication.
+     * @param priority the priority of the job.
+     * @param configuration the supplier of the crawler configuration.
+     * @return the submitted job, or {@code null} if the queue is full.
+     */
+    synchronized CrawlerJob submit(String name, int priority, Supplier<CrawlerConfiguration> configuration) {
+        if (queue.size() >= maxQueuedJobs) {
+            return null;
+        }
+        CrawlerJob job = new CrawlerJob(lastId.incrementAndGet(), name, priority, configuration);
+        jobs.put(job.getId(), job);
+        queue.add(job);
+        Platform.runLater(this::dispatch);
+        return job;
+    }
+    
+    /**
+     * Cancels the job which is still waiting in the queue.
+     * 
+     * @param id the identifier of the job.
+     * @return {@code true} if the job was cancelled.
+     */
+    synchronized boolean cancel(int id) {
+        CrawlerJob job = jobs.get(id);
+        if (job == null || !queue.remove(job)) {
+            return false;
+        }
+        job.cancelled();
+        discardCompletedJobs();
+        return true;
+    }
+    
+    CrawlerJob getJob(int id) {
+        return jobs.get(id);
+    }
+    
+    Collection<CrawlerJob> getJobs() {
+        return jobs.values();
+    }
+    
+    /**
+     * Starts the waiting jobs on the idle web engines.
+     */
+    private void dispatch() {
+        while (true) {
+            WebEngine engine;
+            CrawlerJob job;
+            synchronized (this) {
+                if (idleEngines.isEmpty()) {
+                    return;
+                }
+                job = pollNext();
+                if (job == null) {
+                    break;
+                }
+                engine = idleEngines.remove(idleEngines.size() - 1);
+            }
+            start(job, engine);
+        }
+        if (isIdle() && idleHandler != null) {
+            idleHandler.run();
+        }
+    }
+    
+    private synchronized boolean isIdle() {
+        return queue.isEmpty() && idleEngines.size() == engineCount;
+    }
+    
+    /**
+     * Takes the job with the highest priority, 
+     * skipping the jobs whose publications are being built.
+     */
+    private CrawlerJob pollNext() {
+        List<CrawlerJob> skipped = new ArrayList<>();
+        CrawlerJob next = null;
+        while (!queue.isEmpty()) {
+            CrawlerJob job = queue.poll();
+            if (runningNames.contains(job.getName())) {
+                skipped.add(job);
+            } else {
+                next = job;
+                break;
+            }
+        }
+        queue.addAll(skipped);
+        if (next != null) {
+            runningNames.add(next.getName());
+            next.started();
+        }
+        return next;
+    }
+    
+    private void start(CrawlerJob job, WebEngine engine) {
+        try {
+            CrawlerConfiguration configuration = job.loadConfiguration();
+            Crawler crawler = new CrawlerBuilder().build(configuration);
+            if (crawler != null) {
+                crawler.setListener((c, succeeded)->{
+                    complete(job, engine, succeeded, c.getPageCount());
+                    Platform.runLater(this::dispatch);
+                });
+                crawler.start(engine);
+                return;
+            }
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+        }
+        complete(job, engine, false, 0);
+    }
+    
+    private synchronized void complete(CrawlerJob job, WebEngine engine, boolean succeeded, int pages) {
+        job.completed(succeeded, pages);
+        runningNames.remove(job.getName());
+        idleEngines.add(engine);
+        discardCompletedJobs();
+    }
+    
+    /**
+     * Discards the oldest completed jobs, keeping at most {@link #MAX_COMPLETED_JOBS} of them.
+     */
+    private void discardCompletedJobs() {
+        long excess = jobs.values().stream().filter(CrawlerJob::isCompleted).count() - MAX_COMPLETED_JOBS;
+        Iterator<CrawlerJob> it = jobs.values().iterator();
+        while (excess > 0 && it.hasNext()) {
+            if (it.next().isCompleted()) {
+                it.remove();
+                excess--;
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.bootstrap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.i49.spine.common.JsonStrings;
+import io.github.i49.spine.crawlers.CrawlerConfiguration;
+import io.github.i49.spine.message.Message;
+
+/**
+ * Local HTTP endpoint which accepts crawler jobs.
+ * 
+ * <p>The endpoint is bound to the loopback address and provides the following operations.
+ * Each request must carry the token generated at startup in the header {@code Authorization: Bearer <token>}.
+ * Requests with an {@code Origin} header are rejected, so that web pages cannot submit jobs.</p>
+ * <ul>
+ * <li>{@code POST /jobs?name=<name>&priority=<n>} submits a job with the crawler configuration in YAML as its body.
+ * The stylesheets of the configuration must be specified with absolute paths.</li>
+ * <li>{@code GET /jobs} returns all jobs.</li>
+ * <li>{@code GET /jobs/<id>} returns the job, including the path of the publication file.</li>
+ * <li>{@code DELETE /jobs/<id>} cancels the job waiting in the queue.</li>
+ * </ul>
+ * <p>Jobs are represented in JSON.</p>
+ */
+class JobServer {
+
+    private static final Logger log = Logger.getLogger(JobServer.class.getName());
+    private static final String JOBS_PATH = "/jobs";
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final int MAX_CONFIGURATION_SIZE = 1024 * 1024;
+    
+    private final CrawlerScheduler scheduler;
+    private final HttpServer server;
+    private final String token;
+    
+    JobServer(CrawlerScheduler scheduler, int port) throws IOException {
+        this.scheduler = scheduler;
+        this.token = generateToken();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext(JOBS_PATH, this::handle);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(task->{
+            Thread thread = new Thread(task, "job-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+    
+    void start() {
+        server.start();
+        InetSocketAddress address = server.getAddress();
+        log.info(Message.JOB_SERVER_STARTED.with("http://" + address.getHostString() + ":" + address.getPort() + JOBS_PATH, token));
+    }
+    
+    void stop() {
+        server.stop(0);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (exchange.getRequestHeaders().containsKey("Origin")) {
+                sendError(exchange, 403, "Origin");
+                return;
+            }
+            if (!isAuthorized(exchange)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                sendError(exchange, 401, "Authorization");
+                return;
+            }
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals(JOBS_PATH) || path.equals(JOBS_PATH + "/")) {
+                if ("POST".equals(method)) {
+                    submitJob(exchange);
+                } else if ("GET".equals(method)) {
+                    StringBuilder b = new StringBuilder("[");
+                    for (CrawlerJob job: scheduler.getJobs()) {
+                        if (b.length() > 1) {
+                            b.append(',');
+                        }
+                        appendJob(job, b);
+                    }
+                    send(exchange, 200, b.append(']').toString());
+                } else {
+                    sendError(exchange, 405, method);
+                }
+                return;
+            }
+            CrawlerJob job = findJob(path);
+            if (job == null) {
+                sendError(exchange, 404, path);
+            } else if ("GET".equals(method)) {
+                send(exchange, 200, appendJob(job, new StringBuilder()).toString());
+            } else if ("DELETE".equals(method)) {
+                if (scheduler.cancel(job.getId())) {
+                    send(exchange, 200, appendJob(job, new StringBuilder()).toString());
+                } else {
+                    sendError(exchange, 409, job.getStatus().name());
+                }
+            } else {
+                sendError(exchange, 405, method);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private boolean isAuthorized(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) {
+            return false;
+        }
+        byte[] expected = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, authorization.trim().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String generateToken() {
+        byte[] bytes = new byte[24];
+        new SecureRandom().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    private void submitJob(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        String name = params.get("name");
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            sendError(exchange, 400, "name");
+            return;
+        }
+        int priority;
+        try {
+            priority = Integer.parseInt(params.getOrDefault("priority", "0"));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "priority");
+            return;
+        }
+        byte[] body = readBody(exchange.getRequestBody());
+        if (body == null) {
+            sendError(exchange, 413, "body");
+            return;
+        }
+        CrawlerConfiguration configuration;
+        try {
+            configuration = ConfigurationLoader.load(new ByteArrayInputStream(body), name);
+            ConfigurationLoader.requireAbsoluteStylesheets(configuration);
+        } catch (RuntimeException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        CrawlerJob job = scheduler.submit(name, priority, ()->configuration);
+        if (job == null) {
+            sendError(exchange, 503, "queue");
+            return;
+        }
+        log.info(Message.JOB_SUBMITTED.with(job.getId(), name));
+        exchange.getResponseHeaders().set("Location", JOBS_PATH + "/" + job.getId());
+        send(exchange, 201, appendJob(job, new StringBuilder()).toString());
+    }
+    
+    private CrawlerJob findJob(String path) {
+        if (!path.startsWith(JOBS_PATH + "/")) {
+            return null;
+        }
+        try {
+            return scheduler.getJob(Integer.parseInt(path.substring(JOBS_PATH.length() + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static StringBuilder appendJob(CrawlerJob job, StringBuilder b) {
+        b.append("{\"id\":").append(job.getId());
+        b.append(",\"name\":");
+        JsonStrings.append(job.getName(), b);
+        b.append(",\"priority\":").append(job.getPriority());
+        b.append(",\"status\":\"").append(job.getStatus().name().toLowerCase()).append('"');
+        b.append(",\"pages\":").append(job.getPages());
+        b.append(",\"elapsed\":").append(job.getElapsed() / 1000000);
+        b.append(",\"output\":");
+        JsonStrings.append(job.getOutput().toString(), b);
+        return b.append('}');
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder b = new StringBuilder("{\"error\":");
+        JsonStrings.append(String.valueOf(message), b);
+        send(exchange, status, b.append('}').toString());
+    }
+    
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Reads the body of the request.
+     * 
+     * @return the body, or {@code null} if the body is too large.
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            if (out.size() + len > MAX_CONFIGURATION_SIZE) {
+                return null;
+            }
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+    
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair: query.split("&")) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                String key = URLDecoder.decode(pair.substring(0, index), "UTF-8");
+                params.put(key, URLDecoder.decode(pair.substring(index + 1), "UTF-8"));
+            }
+        }
+        return params;
+    }
+}
@@ -18,25 +18,129 @@ package io.github.i49.spine.bootstrap;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.LogManager;
+import java.util.logging.Logger;
 
 import javafx.application.Application;
 
+import io.github.i49.spine.common.StreamingPublicationWriter;
+import io.github.i49.spine.crawlers.CrawlerConfiguration;
+import io.github.i49.spine.crawlers.LayoutPolicy;
+import io.github.i49.spine.crawlers.Rebuilder;
+import io.github.i49.spine.message.Message;
+import io.github.i49.spine.network.WarcStreamHandlerFactory;
+
 /**
  *
  */
 public class Launcher {
 
+    private static final Logger log = Logger.getLogger(Launcher.class.getName());
+    private static final String REBUILD_OPTION = "--rebuild";
+    private static final String ORIGINAL_OPTION = "--original";
+    private static final String RECOVER_OPTION = "--recover";
+    private static final String RECORD_OPTION = "--record";
+    private static final String REPLAY_OPTION = "--replay";
+    
     public static void main(String[] args) {
         try {
             configureLogger();
-            Application.launch(BrowserApplication.class, args);
+            if (args.length > 0 && REBUILD_OPTION.equals(args[0])) {
+                rebuild(Arrays.copyOfRange(args, 1, args.length));
+            } else if (args.length > 1 && ORIGINAL_OPTION.equals(args[0])) {
+                showOriginal(Arrays.copyOfRange(args, 1, args.length));
+            } else if (args.length > 0 && RECOVER_OPTION.equals(args[0])) {
+                recover(Arrays.copyOfRange(args, 1, args.length));
+            } else {
+                Application.launch(BrowserApplication.class, configureNetwork(args));
+            }
         } catch (IOException e) {
             System.err.println(e.getMessage());
         }
     }
     
+    /**
+     * Records the HTTP exchanges of the crawl into a WARC file with {@code --record <file>},
+     * or serves the crawl from the WARC file with {@code --replay <file>}.
+     * 
+     * @param args the arguments given to the launcher.
+     * @return the arguments without the options consumed.
+     * @throws IOException if the WARC file could not be opened.
+     */
+    private static String[] configureNetwork(String[] args) throws IOException {
+        List<String> remaining = new ArrayList<>(Arrays.asList(args));
+        String record = Options.take(remaining, RECORD_OPTION);
+        String replay = Options.take(remaining, REPLAY_OPTION);
+        if (replay != null) {
+            WarcStreamHandlerFactory.replay(Paths.get(replay));
+        } else if (record != null) {
+            WarcStreamHandlerFactory.record(Paths.get(record));
+        }
+        return remaining.toArray(new String[remaining.size()]);
+    }
+    
+    /**
+     * Rebuilds the publication from the pages saved by the previous crawl,
+     * without starting the web browser.
+     * 
+     * @param args the arguments following the option.
+     */
+    private static void rebuild(String[] args) {
+        String confPath = (args.length > 0) ? args[0] : ConfigurationLoader.DEFAULT_CONFIGURATION_NAME;
+        try {
+            CrawlerConfiguration configuration = ConfigurationLoader.load(Paths.get(confPath));
+            Rebuilder rebuilder = new CrawlerBuilder().buildRebuilder(configuration);
+            rebuilder.rebuild();
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the page saved by the previous crawl to the standard output.
+     * 
+     * @param args the local path of the page, optionally followed by the configuration.
+     */
+    private static void showOriginal(String[] args) {
+        String confPath = (args.length > 1) ? args[1] : ConfigurationLoader.DEFAULT_CONFIGURATION_NAME;
+        try {
+            CrawlerConfiguration configuration = ConfigurationLoader.load(Paths.get(confPath));
+            Rebuilder rebuilder = new CrawlerBuilder().buildRebuilder(configuration);
+            rebuilder.copyOriginal(Paths.get(args[0]), System.out);
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+        }
+    }
+    
+    /**
+     * Recovers the publication left unfinished by an interrupted crawl.
+     * 
+     * @param args the arguments following the option.
+     */
+    private static void recover(String[] args) {
+        String confPath = (args.length > 0) ? args[0] : ConfigurationLoader.DEFAULT_CONFIGURATION_NAME;
+        try {
+            CrawlerConfiguration configuration = ConfigurationLoader.load(Paths.get(confPath));
+            LayoutPolicy layoutPolicy = new LayoutPolicy(Paths.get("."), configuration.getPublicationName());
+            Path partial = layoutPolicy.getPartialPublicationFile();
+            Path target = layoutPolicy.getPublicationFile();
+            int entries = StreamingPublicationWriter.recover(partial, target);
+            log.info(Message.RECOVERING_PUBLICATION.with(entries, target.toString()));
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+        }
+    }
+    
     private static void configureLogger() throws IOException {
+        if (System.getProperty("java.util.logging.config.file") != null) {
+            // the configuration given by the user was already read.
+            return;
+        }
         final LogManager logManager = LogManager.getLogManager();
         try (InputStream input = Launcher.class.getResourceAsStream("logging.properties")) {
             logManager.readConfiguration(input);
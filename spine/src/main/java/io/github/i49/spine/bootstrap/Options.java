@@ -0,0 +1,45 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.bootstrap;
+
+import java.util.List;
+
+/**
+ * Helper for the options given in the command line.
+ */
+final class Options {
+
+    /**
+     * Removes the option and its value from the arguments.
+     * 
+     * @param args the mutable list of the arguments.
+     * @param option the name of the option.
+     * @return the value of the option, or {@code null} if the option was not found.
+     */
+    static String take(List<String> args, String option) {
+        int index = args.indexOf(option);
+        if (index < 0 || index + 1 >= args.size()) {
+            return null;
+        }
+        String value = args.get(index + 1);
+        args.subList(index, index + 2).clear();
+        return value;
+    }
+
+    private Options() {
+    }
+}
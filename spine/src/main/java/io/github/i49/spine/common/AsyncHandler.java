@@ -0,0 +1,198 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+/**
+ * Log handler which passes the records to the target handler on a background thread.
+ * 
+ * <p>Records are queued in a bounded buffer, and the thread logging them never waits for the target.
+ * When the buffer is full, the records are dropped and the number of the dropped records 
+ * is reported later as a single record.</p>
+ * 
+ * <p>This handler is configured by the following properties of {@link LogManager},
+ * prefixed by the name of the class.</p>
+ * <ul>
+ * <li>{@code target} the class of the target handler, {@link ConsoleHandler} by default.</li>
+ * <li>{@code capacity} the number of the records which can be queued, 1024 by default.</li>
+ * <li>{@code level} the level of this handler, {@code ALL} by default.</li>
+ * </ul>
+ */
+public class AsyncHandler extends Handler {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    // the interval at which the writer checks whether this handler was closed.
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    
+    private final Handler target;
+    private final BlockingQueue<LogRecord> queue;
+    private final AtomicLong dropped;
+    private final Thread writer;
+    private volatile boolean closed;
+    
+    /**
+     * Constructs this handler as configured by the properties of {@link LogManager}.
+     * 
+     * @throws ReflectiveOperationException if the target handler could not be created.
+     */
+    public AsyncHandler() throws ReflectiveOperationException {
+        this(null, 0);
+    }
+    
+    /**
+     * Constructs this handler with the target handler.
+     * 
+     * @param target the handler to which the records are passed, 
+     *               or {@code null} to create the handler configured by the properties.
+     * @param capacity the number of the records which can be queued, 
+     *                 or 0 to use the capacity configured by the properties.
+     * @throws ReflectiveOperationException if the target handler could not be created.
+     */
+    protected AsyncHandler(Handler target, int capacity) throws ReflectiveOperationException {
+        String prefix = getClass().getName();
+        this.target = (target != null) ? target : createTarget(getProperty(prefix + ".target"));
+        if (capacity <= 0) {
+            capacity = getIntProperty(prefix + ".capacity", DEFAULT_CAPACITY);
+        }
+        String level = getProperty(prefix + ".level");
+        setLevel((level != null) ? Level.parse(level) : Level.ALL);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = new AtomicLong();
+        this.writer = new Thread(this::run, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (!queue.offer(record)) {
+            dropped.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void flush() {
+        drain();
+        target.flush();
+    }
+    
+    /**
+     * Writes the queued records and closes the target handler.
+     * 
+     * <p>The writer is not interrupted, because the target handler may be in the middle of a write,
+     * and an interruptible channel would be closed by the interrupt.
+     * The writer stops by itself within the poll timeout instead.</p>
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        try {
+            this.writer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        target.close();
+    }
+    
+    /**
+     * Returns the number of the records dropped so far.
+     * 
+     * @return the number of the dropped records.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    private void run() {
+        while (!closed) {
+            try {
+                LogRecord record = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    continue;
+                }
+                write(record);
+                if (queue.isEmpty()) {
+                    reportDropped();
+                    target.flush();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+    
+    private synchronized void drain() {
+        LogRecord record;
+        while ((record = queue.poll()) != null) {
+            write(record);
+        }
+        reportDropped();
+    }
+    
+    private synchronized void write(LogRecord record) {
+        try {
+            target.publish(record);
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+    
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0) {
+            write(new LogRecord(Level.WARNING, count + " log records were dropped because the log buffer was full."));
+        }
+    }
+    
+    private static Handler createTarget(String className) throws ReflectiveOperationException {
+        if (className == null) {
+            return new ConsoleHandler();
+        }
+        Class<?> type = ClassLoader.getSystemClassLoader().loadClass(className);
+        return (Handler)type.getDeclaredConstructor().newInstance();
+    }
+    
+    private static String getProperty(String name) {
+        String value = LogManager.getLogManager().getProperty(name);
+        return (value != null) ? value.trim() : null;
+    }
+    
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
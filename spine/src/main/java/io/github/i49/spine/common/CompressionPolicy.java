@@ -0,0 +1,82 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+/**
+ * Policy which determines how each entry of a publication is compressed.
+ */
+@FunctionalInterface
+public interface CompressionPolicy {
+
+    /**
+     * Compression level which stores the entry without compression.
+     */
+    int STORED = 0;
+    
+    /**
+     * Returns the compression level of the entry.
+     * 
+     * @param name the name of the entry.
+     * @param size the size of the entry.
+     * @param head the supplier of the leading bytes of the entry, which is read only when it is requested.
+     * @return the compression level from 1 to 9, {@link java.util.zip.Deflater#DEFAULT_COMPRESSION},
+     *         or {@link #STORED} if the entry should not be compressed.
+     */
+    int getLevel(String name, long size, Supplier<ByteBuffer> head);
+    
+    /**
+     * Number of the leading bytes given to the policy.
+     */
+    int HEAD_SIZE = 64 * 1024;
+    
+    /**
+     * Returns the supplier of the leading bytes of the content.
+     * 
+     * @param content the content of the entry.
+     * @return the supplier of the leading bytes.
+     */
+    static Supplier<ByteBuffer> headOf(byte[] content) {
+        return ()->ByteBuffer.wrap(content, 0, Math.min(content.length, HEAD_SIZE));
+    }
+
+    /**
+     * Returns the supplier of the leading bytes of the file.
+     * 
+     * @param path the path of the file.
+     * @return the supplier of the leading bytes.
+     */
+    static Supplier<ByteBuffer> headOf(Path path) {
+        return ()->{
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(channel.size(), HEAD_SIZE));
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                }
+                buffer.flip();
+                return buffer;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
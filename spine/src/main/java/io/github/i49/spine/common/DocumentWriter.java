@@ -60,5 +60,12 @@ public abstract class DocumentWriter {
         }
     }
     
-    protected abstract void writeDocumentTo(OutputStream stream, Document doc) throws Exception;
+    /**
+     * Writes the document to the specified stream.
+     * 
+     * @param stream the stream to which the document should be written.
+     * @param doc the document to be written.
+     * @throws Exception if an error occurred while writing the document.
+     */
+    public abstract void writeDocumentTo(OutputStream stream, Document doc) throws Exception;
 }
@@ -15,15 +15,25 @@
  */
 package io.github.i49.spine.common;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Path;
+
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import javax.xml.transform.dom.DOMSource;
-
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import netscape.javascript.JSException;
+import netscape.javascript.JSObject;
 
 public class Documents {
 
@@ -33,17 +43,145 @@ public class Documents {
         return builders.get().newDocument();
     }
     
-    public static Document copy(Document original) throws Exception {
-        TransformerFactory f = TransformerFactory.newInstance();
-        Transformer transformer = f.newTransformer();
-        DOMSource source = new DOMSource(original.getDocumentElement());
+    /**
+     * Copies the document into a standalone one.
+     * 
+     * <p>The nodes are walked without recursion. Attributes which cannot be represented in XML,
+     * such as the ones having an undeclared prefix, are dropped instead of failing the whole page.</p>
+     * 
+     * @param original the document to copy, which may be the live document of the web engine.
+     * @return copied document.
+     */
+    public static Document copy(Document original) {
         Document doc = create();
-        DOMResult target = new DOMResult(doc);
-        transformer.transform(source, target);
+        Node source = original.getDocumentElement();
+        Node parent = doc;
+        Node node = source;
+        while (node != null) {
+            Node copied = copyNode(node, doc);
+            if (copied != null) {
+                parent.appendChild(copied);
+                if (copied.getNodeType() == Node.ELEMENT_NODE && node.hasChildNodes()) {
+                    parent = copied;
+                    node = node.getFirstChild();
+                    continue;
+                }
+            }
+            while (node != source && node.getNextSibling() == null) {
+                node = node.getParentNode();
+                parent = parent.getParentNode();
+            }
+            node = (node == source) ? null : node.getNextSibling();
+        }
         doc.setDocumentURI(original.getDocumentURI());
         return doc;
     }
     
+    private static Node copyNode(Node node, Document doc) {
+        switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            return copyElement((Element)node, doc);
+        case Node.TEXT_NODE:
+            return doc.createTextNode(node.getNodeValue());
+        case Node.CDATA_SECTION_NODE:
+            return doc.createCDATASection(node.getNodeValue());
+        case Node.COMMENT_NODE:
+            return doc.createComment(node.getNodeValue());
+        case Node.PROCESSING_INSTRUCTION_NODE:
+            return doc.createProcessingInstruction(node.getNodeName(), node.getNodeValue());
+        default:
+            return null;
+        }
+    }
+    
+    private static Element copyElement(Element element, Document doc) {
+        Element copied;
+        try {
+            copied = doc.createElementNS(element.getNamespaceURI(), qualifiedName(element));
+        } catch (DOMException e) {
+            return null;
+        }
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Attr attribute = (Attr)attributes.item(i);
+            try {
+                copied.setAttributeNS(attribute.getNamespaceURI(), attribute.getName(), attribute.getValue());
+            } catch (DOMException e) {
+                // Drops the attribute which is not well-formed.
+            }
+        }
+        return copied;
+    }
+    
+    private static String qualifiedName(Node node) {
+        String localName = node.getLocalName();
+        if (localName == null) {
+            return node.getNodeName();
+        }
+        String prefix = node.getPrefix();
+        return (prefix == null) ? localName : prefix + ":" + localName;
+    }
+    
+    /**
+     * Finds the first element matching the selector.
+     * 
+     * <p>The live document owned by the web engine is searched by its native {@code querySelector}
+     * in a single call, without walking the nodes through the bridge.
+     * Other documents, and selectors not supported by the web engine, 
+     * are handled by {@link HtmlDocument}.</p>
+     * 
+     * @param doc the document to search.
+     * @param selector the selector of the element.
+     * @return the element found, or {@code null} if no element matched.
+     */
+    public static Element querySelector(Document doc, String selector) {
+        if (doc instanceof JSObject) {
+            try {
+                Object found = ((JSObject)doc).call("querySelector", selector);
+                return (found instanceof Element) ? (Element)found : null;
+            } catch (JSException e) {
+                // falls back to the selector engine.
+            }
+        }
+        return HtmlDocument.of(doc).find(selector);
+    }
+    
+    /**
+     * Parses the document previously saved by {@link HtmlDocumentWriter}.
+     * 
+     * @param path the path of the saved document.
+     * @return parsed document.
+     * @throws IOException if an I/O error occurred while reading the document.
+     * @throws SAXException if the document is not well-formed.
+     */
+    public static Document parse(Path path) throws IOException, SAXException {
+        return builders.get().parse(path.toFile());
+    }
+    
+    /**
+     * Parses the document previously saved by {@link HtmlDocumentWriter}.
+     * 
+     * @param stream the stream of the saved document.
+     * @return parsed document.
+     * @throws IOException if an I/O error occurred while reading the document.
+     * @throws SAXException if the document is not well-formed.
+     */
+    public static Document parse(InputStream stream) throws IOException, SAXException {
+        return builders.get().parse(stream);
+    }
+    
+    /**
+     * Parses the document serialized as XML by the web engine.
+     * 
+     * @param reader the reader of the serialized document.
+     * @return parsed document.
+     * @throws IOException if an I/O error occurred while reading the document.
+     * @throws SAXException if the document is not well-formed.
+     */
+    public static Document parse(Reader reader) throws IOException, SAXException {
+        return builders.get().parse(new InputSource(reader));
+    }
+    
     private static DocumentBuilder createBuilder() {
         DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
         f.setNamespaceAware(true);
@@ -0,0 +1,63 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Log of the events in the processing of each page, such as loading, saving and converting.
+ * 
+ * <p>The events are sent to the logger named {@value #LOGGER_NAME},
+ * which is disabled unless configured. Each event carries the stage, the URL of the page 
+ * and the time spent in the stage, and can be written as JSON lines by {@link EventLogHandler}.</p>
+ */
+public final class EventLog {
+
+    public static final String LOGGER_NAME = "io.github.i49.spine.events";
+    
+    private static final Logger logger = Logger.getLogger(LOGGER_NAME);
+    
+    /**
+     * Returns whether the events are logged.
+     * 
+     * @return {@code true} if the events are logged.
+     */
+    public static boolean isEnabled() {
+        return logger.isLoggable(Level.INFO);
+    }
+    
+    /**
+     * Logs the event.
+     * 
+     * @param stage the stage of the processing.
+     * @param url the URL of the page or the resource.
+     * @param startTime the value of {@link System#nanoTime()} when the stage started.
+     */
+    public static void event(String stage, Object url, long startTime) {
+        if (!isEnabled()) {
+            return;
+        }
+        LogRecord record = new LogRecord(Level.INFO, stage);
+        record.setLoggerName(LOGGER_NAME);
+        record.setParameters(new Object[] { url, (System.nanoTime() - startTime) / 1e6 });
+        logger.log(record);
+    }
+    
+    private EventLog() {
+    }
+}
@@ -0,0 +1,45 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.logging.LogManager;
+import java.util.logging.StreamHandler;
+
+/**
+ * Handler which writes the events of {@link EventLog} to a file as JSON lines,
+ * on the background thread of {@link AsyncHandler}.
+ * 
+ * <p>The path of the file is given by the property {@code path} prefixed by the name of this class,
+ * {@code spine-events.jsonl} by default. Events are appended to the existing file.</p>
+ */
+public class EventLogHandler extends AsyncHandler {
+
+    private static final String DEFAULT_PATH = "spine-events.jsonl";
+    
+    public EventLogHandler() throws ReflectiveOperationException, IOException {
+        super(createFileHandler(), 0);
+    }
+    
+    private static StreamHandler createFileHandler() throws IOException {
+        String path = LogManager.getLogManager().getProperty(EventLogHandler.class.getName() + ".path");
+        // unlike the channel opened by Files, this stream is not closed when the writing thread is interrupted.
+        OutputStream stream = new FileOutputStream((path != null) ? path.trim() : DEFAULT_PATH, true);
+        return new StreamHandler(stream, new JsonLinesFormatter());
+    }
+}
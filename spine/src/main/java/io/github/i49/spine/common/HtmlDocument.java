@@ -37,6 +37,9 @@ public class HtmlDocument {
 
     private final Element html;
     private final Element head;
+    
+    // the number of nodes modified by the last operation.
+    private int matchCount;
 
     public static HtmlDocument of(Document doc) {
         return new HtmlDocument(doc);
@@ -55,10 +58,20 @@ public class HtmlDocument {
         return doc;
     }
 
+    /**
+     * Returns the number of elements or attributes modified by the last operation.
+     * 
+     * @return the number of the nodes modified.
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
     public HtmlDocument addMetaCharset(String value) {
         Element meta = doc.createElementNS(HtmlSpec.NAMESPACE_URL, "meta");
         meta.setAttribute("charset", value);
         this.head.insertBefore(meta, this.head.getFirstChild());
+        this.matchCount = 1;
         return this;
     }
 
@@ -68,12 +81,14 @@ public class HtmlDocument {
     }
 
     public HtmlDocument remove(String expression) {
-        for (Element element: select(expression)) {
+        List<Element> elements = select(expression);
+        for (Element element: elements) {
             Node parent = element.getParentNode();
             if (parent != null) {
                 parent.removeChild(element);
             }
         }
+        this.matchCount = elements.size();
         return this;
     }
 
@@ -85,6 +100,7 @@ public class HtmlDocument {
             }
         });
         removeAttributes(attributes);
+        this.matchCount = attributes.size();
         return this;
     }
 
@@ -93,22 +109,26 @@ public class HtmlDocument {
     }
 
     public HtmlDocument unwrap(String expression) {
-        for (Element wrapper: select(expression)) {
+        List<Element> wrappers = select(expression);
+        for (Element wrapper: wrappers) {
             Node parent = wrapper.getParentNode();
             while (wrapper.hasChildNodes()) {
                 parent.insertBefore(wrapper.getFirstChild(), wrapper);
             }
             parent.removeChild(wrapper);
        }
+        this.matchCount = wrappers.size();
         return this;
     }
     
     public HtmlDocument replace(String expression, String tagName) {
-        for (Element oldElement: select(expression)) {
+        List<Element> oldElements = select(expression);
+        for (Element oldElement: oldElements) {
             Element newElement = createElement(tagName);
             moveChildren(oldElement, newElement);
             oldElement.getParentNode().replaceChild(newElement, oldElement);
         }
+        this.matchCount = oldElements.size();
         return this;
     }
 
@@ -135,7 +155,7 @@ public class HtmlDocument {
     }
     
     private Element createElement(String tagName, Map<String, String> attributes) {
-        Element e = this.doc.createElement(tagName);
+        Element e = this.doc.createElementNS(HtmlSpec.NAMESPACE_URL, tagName);
         for (String key: attributes.keySet()) {
             e.setAttribute(key, attributes.get(key));
         }
@@ -16,49 +16,23 @@
 package io.github.i49.spine.common;
 
 import java.io.OutputStream;
-
-import javax.xml.stream.FactoryConfigurationError;
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stax.StAXResult;
+import java.nio.charset.Charset;
 
 import org.w3c.dom.Document;
 
+/**
+ * HTML document writer.
+ * 
+ * <p>Documents are serialized directly without any XML transformer,
+ * so a single instance of this writer can be shared by multiple threads.</p>
+ */
 public class HtmlDocumentWriter extends DocumentWriter {
     
-    private final Transformer transformer;
-    
-    public HtmlDocumentWriter() throws Exception {
-        this.transformer = createHtmlTransformer();
+    public HtmlDocumentWriter() {
     }
     
     @Override
-    protected void writeDocumentTo(OutputStream stream, Document doc) throws Exception {
-        String encoding = getEncoding();
-        XMLStreamWriter writer = createHtmlStreamWriter(stream, encoding);
-        this.transformer.setOutputProperty(OutputKeys.ENCODING, encoding);
-        this.transformer.transform(new DOMSource(doc), new StAXResult(writer));
-    }
-    
-    private static Transformer createHtmlTransformer() throws TransformerException {
-        Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        transformer.setOutputProperty(OutputKeys.INDENT, "no");
-        return transformer;
-    }
-    
-    private XMLStreamWriter createXmlStreamWriter(OutputStream stream, String encoding) throws XMLStreamException, FactoryConfigurationError {
-        return XMLOutputFactory.newFactory().createXMLStreamWriter(stream, encoding);
-    }
-
-    private XMLStreamWriter createHtmlStreamWriter(OutputStream stream, String encoding) throws XMLStreamException, FactoryConfigurationError {
-        return new HtmlStreamWriter(createXmlStreamWriter(stream, encoding));
+    public void writeDocumentTo(OutputStream stream, Document doc) throws Exception {
+        HtmlSerializer.serialize(doc, stream, Charset.forName(getEncoding()));
     }
 }
@@ -0,0 +1,463 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Serializer which writes DOM documents directly as bytes in the XML syntax of HTML.
+ *
+ * <p>This class is stateless and can be used by multiple threads concurrently.
+ * Each thread reuses its own output buffer.</p>
+ */
+final class HtmlSerializer {
+
+    private static final String XMLNS_NAMESPACE_URI = "http://www.w3.org/2000/xmlns/";
+    private static final String XML_NAMESPACE_URI = "http://www.w3.org/XML/1998/namespace";
+    private static final String DOCTYPE_DECLARATION = "<!DOCTYPE html>\n";
+    private static final int BUFFER_SIZE = 32 * 1024;
+    // the maximum number of the element names cached, which bounds the memory used by unusual documents.
+    private static final int MAX_CACHED_NAMES = 1024;
+
+    private static final ConcurrentMap<String, Name> names = new ConcurrentHashMap<>();
+    private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(()->new byte[BUFFER_SIZE]);
+
+    /**
+     * Writes the document to the stream.
+     *
+     * @param doc the document to write.
+     * @param stream the stream to which the document will be written.
+     * @param charset the character encoding of the output.
+     * @throws IOException if an I/O error occurred while writing the document.
+     */
+    static void serialize(Document doc, OutputStream stream, Charset charset) throws IOException {
+        Sink sink = new Sink(stream, buffers.get(), charset);
+        sink.writeAscii(DOCTYPE_DECLARATION);
+        Node child = doc.getFirstChild();
+        while (child != null) {
+            writeNode(child, sink);
+            child = child.getNextSibling();
+        }
+        sink.flush();
+    }
+
+    /**
+     * Writes the node and all of its descendants without recursion.
+     */
+    private static void writeNode(Node root, Sink sink) throws IOException {
+        Deque<Scope> scopes = new ArrayDeque<>();
+        scopes.push(Scope.ROOT);
+        Node node = root;
+        while (node != null) {
+            Node firstChild = null;
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                Element element = (Element)node;
+                Name name = nameOf(element);
+                Scope scope = writeStartTag(element, name, scopes.peek(), sink);
+                if (name.isVoid) {
+                    break;
+                }
+                firstChild = node.getFirstChild();
+                if (firstChild == null) {
+                    writeEndTag(element, name, sink);
+                } else {
+                    scopes.push(scope);
+                }
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                sink.writeEscaped(node.getNodeValue(), false);
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                firstChild = node.getFirstChild();
+                if (firstChild != null) {
+                    scopes.push(scopes.peek());
+                }
+                break;
+            case Node.COMMENT_NODE:
+                sink.writeAscii("<!--");
+                sink.writeRaw(node.getNodeValue());
+                sink.writeAscii("-->");
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                ProcessingInstruction pi = (ProcessingInstruction)node;
+                sink.writeAscii("<?");
+                sink.writeRaw(pi.getTarget());
+                String data = pi.getData();
+                if (data != null && !data.isEmpty()) {
+                    sink.writeByte(' ');
+                    sink.writeRaw(data);
+                }
+                sink.writeAscii("?>");
+                break;
+            default:
+                break;
+            }
+
+            if (firstChild != null) {
+                node = firstChild;
+                continue;
+            }
+
+            // goes up to the nearest ancestor which has the next sibling.
+            while (node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+                scopes.pop();
+                if (node.getNodeType() == Node.ELEMENT_NODE) {
+                    Element parent = (Element)node;
+                    writeEndTag(parent, nameOf(parent), sink);
+                }
+            }
+            node = (node == root) ? null : node.getNextSibling();
+        }
+    }
+
+    private static Scope writeStartTag(Element element, Name name, Scope parent, Sink sink) throws IOException {
+        Scope scope = parent;
+        sink.writeByte('<');
+        String prefix = element.getPrefix();
+        if (prefix != null && !prefix.isEmpty()) {
+            sink.writeRaw(prefix);
+            sink.writeByte(':');
+        } else {
+            prefix = "";
+        }
+        sink.writeRaw(name.value);
+
+        NamedNodeMap attributes = element.getAttributes();
+        int length = attributes.getLength();
+
+        // namespace declarations given explicitly as attributes.
+        for (int i = 0; i < length; i++) {
+            Attr a = (Attr)attributes.item(i);
+            if (XMLNS_NAMESPACE_URI.equals(a.getNamespaceURI()) || isNamespaceDeclaration(a.getName())) {
+                String declared = declaredPrefix(a.getName());
+                if (!scope.isDeclaredAfter(parent, declared)) {
+                    scope = declareIfNeeded(declared, a.getValue(), scope, sink);
+                }
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            Attr a = (Attr)attributes.item(i);
+            String uri = a.getNamespaceURI();
+            if (XMLNS_NAMESPACE_URI.equals(uri) || isNamespaceDeclaration(a.getName())) {
+                continue;
+            }
+            String attributePrefix = a.getPrefix();
+            if (uri != null && !uri.isEmpty() && !XML_NAMESPACE_URI.equals(uri) && attributePrefix != null) {
+                scope = declareIfNeeded(attributePrefix, uri, scope, sink);
+            }
+            sink.writeByte(' ');
+            sink.writeRaw(a.getName());
+            sink.writeAscii("=\"");
+            sink.writeEscaped(a.getValue(), true);
+            sink.writeByte('"');
+        }
+
+        // the namespace of the element is declared after the attributes, as the former writer did.
+        // elements without namespace are written as if they were HTML elements.
+        String namespaceURI = element.getNamespaceURI();
+        if (namespaceURI != null && !namespaceURI.isEmpty()) {
+            scope = declareIfNeeded(prefix, namespaceURI, scope, sink);
+        }
+
+        sink.writeAscii(name.isVoid ? "/>" : ">");
+        return scope;
+    }
+
+    private static Scope declareIfNeeded(String prefix, String uri, Scope scope, Sink sink) throws IOException {
+        if (uri == null) {
+            uri = "";
+        }
+        if (uri.equals(scope.lookup(prefix))) {
+            return scope;
+        }
+        writeNamespace(prefix, uri, sink);
+        return new Scope(prefix, uri, scope);
+    }
+
+    private static void writeNamespace(String prefix, String uri, Sink sink) throws IOException {
+        if (prefix.isEmpty()) {
+            sink.writeAscii(" xmlns=\"");
+        } else {
+            sink.writeAscii(" xmlns:");
+            sink.writeRaw(prefix);
+            sink.writeAscii("=\"");
+        }
+        sink.writeEscaped(uri, true);
+        sink.writeByte('"');
+    }
+
+    private static void writeEndTag(Element element, Name name, Sink sink) throws IOException {
+        if (!name.isVoid) {
+            sink.writeAscii("</");
+            String prefix = element.getPrefix();
+            if (prefix != null && !prefix.isEmpty()) {
+                sink.writeRaw(prefix);
+                sink.writeByte(':');
+            }
+            sink.writeRaw(name.value);
+            sink.writeByte('>');
+        }
+    }
+
+    private static boolean isNamespaceDeclaration(String name) {
+        return name.equals("xmlns") || name.startsWith("xmlns:");
+    }
+
+    private static String declaredPrefix(String name) {
+        int index = name.indexOf(':');
+        return (index >= 0) ? name.substring(index + 1) : "";
+    }
+
+    private static Name nameOf(Element element) {
+        String localName = element.getLocalName();
+        if (localName == null) {
+            localName = element.getTagName();
+        }
+        Name name = names.get(localName);
+        if (name == null) {
+            if (names.size() >= MAX_CACHED_NAMES) {
+                return new Name(localName);
+            }
+            name = names.computeIfAbsent(localName, Name::new);
+        }
+        return name;
+    }
+
+    /**
+     * Lowercase name of an element, shared by all documents.
+     */
+    private static class Name {
+
+        final String value;
+        final boolean isVoid;
+
+        Name(String localName) {
+            this.value = localName.toLowerCase(Locale.ROOT);
+            this.isVoid = HtmlSpec.isVoid(this.value);
+        }
+    }
+
+    /**
+     * Namespace bindings in scope, linked to the bindings of the parent element.
+     */
+    private static class Scope {
+
+        static final Scope ROOT = new Scope("", "", null);
+
+        private final String prefix;
+        private final String uri;
+        private final Scope parent;
+
+        Scope(String prefix, String uri, Scope parent) {
+            this.prefix = prefix;
+            this.uri = uri;
+            this.parent = parent;
+        }
+
+        /**
+         * Checks if the prefix was declared by the element which owns this scope.
+         */
+        boolean isDeclaredAfter(Scope parent, String prefix) {
+            for (Scope s = this; s != parent; s = s.parent) {
+                if (s.prefix.equals(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String lookup(String prefix) {
+            for (Scope s = this; s != null; s = s.parent) {
+                if (s.prefix.equals(prefix)) {
+                    return s.uri;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Byte output with its own buffer.
+     */
+    private static class Sink {
+
+        private final OutputStream stream;
+        private final byte[] buffer;
+        private int position;
+        private final CharsetEncoder encoder;
+
+        Sink(OutputStream stream, byte[] buffer, Charset charset) {
+            this.stream = stream;
+            this.buffer = buffer;
+            if (StandardCharsets.UTF_8.equals(charset)) {
+                this.encoder = null;
+            } else {
+                this.encoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+        }
+
+        void writeByte(int b) throws IOException {
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte)b;
+        }
+
+        void writeAscii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                writeByte(s.charAt(i));
+            }
+        }
+
+        void writeRaw(String s) throws IOException {
+            int length = s.length();
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    writeByte(c);
+                } else {
+                    i = writeNonAscii(s, i, false);
+                }
+            }
+        }
+
+        void writeEscaped(String s, boolean inAttribute) throws IOException {
+            int length = s.length();
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                case '&':
+                    writeAscii("&amp;");
+                    break;
+                case '<':
+                    writeAscii("&lt;");
+                    break;
+                case '>':
+                    writeAscii("&gt;");
+                    break;
+                case '"':
+                    if (inAttribute) {
+                        writeAscii("&quot;");
+                    } else {
+                        writeByte(c);
+                    }
+                    break;
+                default:
+                    if (c < 0x80) {
+                        writeByte(c);
+                    } else {
+                        i = writeNonAscii(s, i, true);
+                    }
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Writes a non-ASCII character.
+         *
+         * @return the index of the last character consumed.
+         */
+        private int writeNonAscii(String s, int index, boolean escapable) throws IOException {
+            char c = s.charAt(index);
+            int codePoint = c;
+            int last = index;
+            if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+                codePoint = Character.toCodePoint(c, s.charAt(index + 1));
+                last = index + 1;
+            }
+            if (encoder == null) {
+                writeUtf8(codePoint);
+            } else if (escapable && !encoder.canEncode(s.subSequence(index, last + 1))) {
+                writeAscii("&#");
+                writeAscii(Integer.toString(codePoint));
+                writeByte(';');
+            } else {
+                writeEncoded(s.subSequence(index, last + 1));
+            }
+            return last;
+        }
+
+        private void writeUtf8(int codePoint) throws IOException {
+            if (codePoint < 0x800) {
+                writeByte(0xc0 | (codePoint >> 6));
+                writeByte(0x80 | (codePoint & 0x3f));
+            } else if (codePoint < 0x10000) {
+                writeByte(0xe0 | (codePoint >> 12));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                writeByte(0x80 | (codePoint & 0x3f));
+            } else {
+                writeByte(0xf0 | (codePoint >> 18));
+                writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+                writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+                writeByte(0x80 | (codePoint & 0x3f));
+            }
+        }
+
+        private void writeEncoded(CharSequence chars) throws IOException {
+            ByteBuffer out = ByteBuffer.allocate(16);
+            encoder.reset();
+            CoderResult result = encoder.encode(CharBuffer.wrap(chars), out, true);
+            if (!result.isUnderflow()) {
+                result.throwException();
+            }
+            encoder.flush(out);
+            out.flip();
+            while (out.hasRemaining()) {
+                writeByte(out.get());
+            }
+        }
+
+        private void drain() throws IOException {
+            stream.write(buffer, 0, position);
+            position = 0;
+        }
+
+        void flush() throws IOException {
+            drain();
+            stream.flush();
+        }
+    }
+
+    private HtmlSerializer() {
+    }
+}
@@ -0,0 +1,318 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.color.ColorSpace;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Optimizer which reduces the size of raster images.
+ * 
+ * <p>An image larger than the maximum dimensions is scaled down,
+ * and then encoded again in the same format. The smaller of the original and the encoded image is kept,
+ * so the optimization never makes an image larger.
+ * The metadata of the image, such as the EXIF orientation and the color profile, is written again with the image.
+ * Only PNG and JPEG images are optimized, and animated or unreadable images are left as they are.
+ * So are images in a color space other than sRGB or gray, whose pixels cannot be redrawn without converting them.</p>
+ * 
+ * <p>Instances of this class can be shared by multiple threads.</p>
+ */
+public class ImageOptimizer {
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final float quality;
+    
+    /**
+     * Constructs this optimizer.
+     * 
+     * @param maxWidth the maximum width of the images in pixels, or 0 if not limited.
+     * @param maxHeight the maximum height of the images in pixels, or 0 if not limited.
+     * @param quality the quality of the JPEG images, from 0.0 to 1.0.
+     */
+    public ImageOptimizer(int maxWidth, int maxHeight, float quality) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.quality = quality;
+    }
+    
+    /**
+     * Result of the optimization of an image.
+     */
+    public static class Result {
+        
+        private final long originalSize;
+        private final long optimizedSize;
+        private final String mediaType;
+        
+        Result(long originalSize, long optimizedSize, String mediaType) {
+            this.originalSize = originalSize;
+            this.optimizedSize = optimizedSize;
+            this.mediaType = mediaType;
+        }
+        
+        public long getOriginalSize() {
+            return originalSize;
+        }
+        
+        public long getOptimizedSize() {
+            return optimizedSize;
+        }
+        
+        public long getSavedSize() {
+            return originalSize - optimizedSize;
+        }
+        
+        /**
+         * Returns the media type of the image after the optimization.
+         * 
+         * @return the media type of the image.
+         */
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+    
+    /**
+     * Optimizes the image file, which is replaced only if the result is smaller.
+     * 
+     * @param path the path of the image file.
+     * @return the result of the optimization.
+     * @throws IOException if an I/O error occurred.
+     */
+    public Result optimize(Path path) throws IOException {
+        String mediaType = MediaTypes.detect(path);
+        long originalSize = Files.size(path);
+        boolean png = "image/png".equals(mediaType);
+        if (!isOptimizable(mediaType) || (png && isAnimatedPng(path))) {
+            return new Result(originalSize, originalSize, mediaType);
+        }
+        IIOImage source = read(path);
+        if (source == null || !isRedrawable((BufferedImage)source.getRenderedImage())) {
+            return new Result(originalSize, originalSize, mediaType);
+        }
+        BufferedImage image = scale((BufferedImage)source.getRenderedImage());
+        IIOMetadata metadata = source.getMetadata();
+        byte[] best = png ? encodePng(image, metadata) : encodeJpeg(image, metadata);
+        if (best == null || best.length >= originalSize) {
+            return new Result(originalSize, originalSize, mediaType);
+        }
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, best);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new Result(originalSize, best.length, mediaType);
+    }
+    
+    /**
+     * Returns whether the images of the media type can be optimized.
+     * 
+     * @param mediaType the media type of the image.
+     * @return {@code true} if the images can be optimized.
+     */
+    public static boolean isOptimizable(String mediaType) {
+        return "image/png".equals(mediaType) || "image/jpeg".equals(mediaType);
+    }
+    
+    /**
+     * Returns whether the PNG image is animated, of which only the first frame would be read.
+     * The {@code acTL} chunk of an animated image precedes the first {@code IDAT} chunk.
+     */
+    private static boolean isAnimatedPng(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            in.readFully(new byte[8]);
+            byte[] type = new byte[4];
+            while (true) {
+                int length = in.readInt();
+                in.readFully(type);
+                String name = new String(type, StandardCharsets.US_ASCII);
+                if ("acTL".equals(name)) {
+                    return true;
+                } else if ("IDAT".equals(name)) {
+                    return false;
+                }
+                // the data and the CRC of the chunk.
+                long remaining = (length & 0xffffffffL) + 4;
+                while (remaining > 0) {
+                    long skipped = in.skip(remaining);
+                    if (skipped <= 0) {
+                        in.readByte();
+                        skipped = 1;
+                    }
+                    remaining -= skipped;
+                }
+            }
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Reads the first image in the file with its metadata.
+     * 
+     * @return the image read, or {@code null} if the image is not supported.
+     */
+    private static IIOImage read(Path path) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                return reader.readAll(0, null);
+            } catch (IOException e) {
+                // unsupported variants such as CMYK JPEG images.
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Returns whether the pixels of the image are kept as they are when the image is redrawn,
+     * which is not the case for images decoded in the color space of their own profile.
+     */
+    private static boolean isRedrawable(BufferedImage image) {
+        ColorSpace space = image.getColorModel().getColorSpace();
+        return space.isCS_sRGB() || space.getType() == ColorSpace.TYPE_GRAY;
+    }
+    
+    /**
+     * Scales down the image to fit the maximum dimensions.
+     * The image is halved repeatedly before the final step, which keeps the quality of bilinear scaling.
+     */
+    private BufferedImage scale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double ratio = 1.0;
+        if (maxWidth > 0 && width > maxWidth) {
+            ratio = Math.min(ratio, (double)maxWidth / width);
+        }
+        if (maxHeight > 0 && height > maxHeight) {
+            ratio = Math.min(ratio, (double)maxHeight / height);
+        }
+        if (ratio >= 1.0) {
+            return image;
+        }
+        int targetWidth = Math.max(1, (int)Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int)Math.round(height * ratio));
+        int type;
+        if (image.getColorModel().hasAlpha()) {
+            type = BufferedImage.TYPE_INT_ARGB;
+        } else if (image.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_GRAY) {
+            type = BufferedImage.TYPE_BYTE_GRAY;
+        } else {
+            type = BufferedImage.TYPE_INT_RGB;
+        }
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage scaled = new BufferedImage(width, height, type);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = scaled;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+    
+    private static byte[] encodePng(BufferedImage image, IIOMetadata metadata) throws IOException {
+        return encode(image, metadata, "png", null);
+    }
+    
+    private byte[] encodeJpeg(BufferedImage image, IIOMetadata metadata) throws IOException {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_3BYTE_BGR && type != BufferedImage.TYPE_BYTE_GRAY) {
+            image = toRgb(image);
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        writer.dispose();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(this.quality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        return encode(image, metadata, "jpeg", param);
+    }
+    
+    /**
+     * Encodes the image with the metadata of the original image.
+     * 
+     * @return the encoded image, or {@code null} if the metadata does not fit the image.
+     */
+    private static byte[] encode(BufferedImage image, IIOMetadata metadata, String format, ImageWriteParam param) 
+            throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (ImageOutputStream out = new MemoryCacheImageOutputStream(stream)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } catch (IOException | IllegalArgumentException e) {
+            // the original image is kept rather than losing its metadata.
+            return null;
+        } finally {
+            writer.dispose();
+        }
+        return stream.toByteArray();
+    }
+    
+    private static BufferedImage toRgb(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+}
@@ -0,0 +1,48 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * Formatter which writes each event of {@link EventLog} as a line of JSON.
+ * 
+ * <p>Each line has the fields {@code time}, {@code stage}, {@code url}, {@code millis} and {@code thread}.</p>
+ */
+public class JsonLinesFormatter extends Formatter {
+
+    @Override
+    public String format(LogRecord record) {
+        Object[] parameters = record.getParameters();
+        StringBuilder b = new StringBuilder(128);
+        b.append("{\"time\":\"").append(Instant.ofEpochMilli(record.getMillis())).append('"');
+        b.append(",\"stage\":");
+        JsonStrings.append(record.getMessage(), b);
+        if (parameters != null && parameters.length > 0) {
+            b.append(",\"url\":");
+            JsonStrings.append((parameters[0] != null) ? parameters[0].toString() : null, b);
+        }
+        if (parameters != null && parameters.length > 1 && parameters[1] instanceof Number) {
+            b.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", ((Number)parameters[1]).doubleValue()));
+        }
+        b.append(",\"thread\":").append(record.getThreadID());
+        b.append("}\n");
+        return b.toString();
+    }
+}
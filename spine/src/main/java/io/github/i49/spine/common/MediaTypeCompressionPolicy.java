@@ -0,0 +1,138 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+
+/**
+ * Compression policy which chooses the compression level by the media type of the entry.
+ * 
+ * <p>By default, images, fonts and media which are already compressed are stored,
+ * and very small entries are also stored because deflating them does not save any space.
+ * Optionally, the leading bytes of an entry of unknown media type can be sampled
+ * to decide whether the entry is worth compressing.</p>
+ */
+public class MediaTypeCompressionPolicy implements CompressionPolicy {
+
+    private static final double MINIMUM_SAVING = 0.1;
+    
+    private final Map<String, Integer> levels;
+    private int defaultLevel;
+    private long minimumSize;
+    private boolean sampling;
+    
+    public MediaTypeCompressionPolicy() {
+        this.levels = new HashMap<>();
+        this.defaultLevel = Deflater.DEFAULT_COMPRESSION;
+        this.minimumSize = 64;
+        for (String mediaType: new String[] { 
+                "image/png", "image/jpeg", "image/gif", "image/webp", 
+                "font/woff", "font/woff2", "audio/mpeg", "video/mp4" }) {
+            this.levels.put(mediaType, STORED);
+        }
+    }
+    
+    /**
+     * Specifies the compression level of the media type.
+     * 
+     * @param mediaType the media type.
+     * @param level the compression level, or {@link #STORED}.
+     * @return this policy.
+     */
+    public MediaTypeCompressionPolicy level(String mediaType, int level) {
+        this.levels.put(mediaType, level);
+        return this;
+    }
+    
+    /**
+     * Specifies the compression level of the media types not specified.
+     * 
+     * @param level the compression level, or {@link #STORED}.
+     * @return this policy.
+     */
+    public MediaTypeCompressionPolicy defaultLevel(int level) {
+        this.defaultLevel = level;
+        return this;
+    }
+
+    /**
+     * Specifies the size below which entries are stored.
+     * 
+     * @param minimumSize the minimum size of the compressed entries.
+     * @return this policy.
+     */
+    public MediaTypeCompressionPolicy minimumSize(long minimumSize) {
+        this.minimumSize = minimumSize;
+        return this;
+    }
+    
+    /**
+     * Specifies whether the entries of unknown media types are sampled.
+     * 
+     * @param sampling {@code true} to sample the entries.
+     * @return this policy.
+     */
+    public MediaTypeCompressionPolicy sampling(boolean sampling) {
+        this.sampling = sampling;
+        return this;
+    }
+
+    @Override
+    public int getLevel(String name, long size, Supplier<ByteBuffer> head) {
+        if (size < minimumSize) {
+            return STORED;
+        }
+        String mediaType = MediaTypes.fromFileName(name);
+        if (mediaType != null) {
+            Integer level = levels.get(mediaType);
+            if (level != null) {
+                return level;
+            }
+        } else if (sampling && !isCompressible(head.get())) {
+            return STORED;
+        }
+        return defaultLevel;
+    }
+    
+    /**
+     * Estimates whether the content is compressible by deflating its sample with the fastest level.
+     */
+    private static boolean isCompressible(ByteBuffer sample) {
+        int length = sample.remaining();
+        if (length == 0) {
+            return false;
+        }
+        byte[] input = new byte[length];
+        sample.duplicate().get(input);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[length];
+            int compressed = 0;
+            while (!deflater.finished() && compressed < length) {
+                compressed += deflater.deflate(buffer);
+            }
+            return compressed < length * (1.0 - MINIMUM_SAVING);
+        } finally {
+            deflater.end();
+        }
+    }
+}
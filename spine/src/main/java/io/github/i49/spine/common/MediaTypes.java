@@ -0,0 +1,153 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Media types of the files contained in publications.
+ */
+public final class MediaTypes {
+
+    /**
+     * Media type of the files whose type is unknown.
+     */
+    public static final String DEFAULT_MEDIA_TYPE = "application/octet-stream";
+    
+    private static final int SNIFFED_LENGTH = 512;
+    
+    private static final Map<String, String> byExtension = new HashMap<>();
+    
+    static {
+        byExtension.put("html", "application/xhtml+xml");
+        byExtension.put("xhtml", "application/xhtml+xml");
+        byExtension.put("opf", "application/oebps-package+xml");
+        byExtension.put("ncx", "application/x-dtbncx+xml");
+        byExtension.put("css", "text/css");
+        byExtension.put("js", "application/javascript");
+        byExtension.put("svg", "image/svg+xml");
+        byExtension.put("png", "image/png");
+        byExtension.put("jpg", "image/jpeg");
+        byExtension.put("jpeg", "image/jpeg");
+        byExtension.put("gif", "image/gif");
+        byExtension.put("webp", "image/webp");
+        byExtension.put("ttf", "font/ttf");
+        byExtension.put("otf", "font/otf");
+        byExtension.put("woff", "font/woff");
+        byExtension.put("woff2", "font/woff2");
+        byExtension.put("mp3", "audio/mpeg");
+        byExtension.put("mp4", "video/mp4");
+    }
+    
+    /**
+     * Guesses the media type from the extension of the file name.
+     * 
+     * @param name the name of the file.
+     * @return the media type, or {@code null} if the extension is unknown.
+     */
+    public static String fromFileName(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        return byExtension.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Detects the media type of the file, from its signature if found, otherwise from its name.
+     * 
+     * @param path the path of the file.
+     * @return the media type of the file, never be {@code null}.
+     * @throws IOException if an I/O error occurred while reading the file.
+     */
+    public static String detect(Path path) throws IOException {
+        String mediaType = sniff(path);
+        if (mediaType == null) {
+            mediaType = fromFileName(path.getFileName().toString());
+        }
+        return (mediaType != null) ? mediaType : DEFAULT_MEDIA_TYPE;
+    }
+    
+    /**
+     * Detects the media type of the file from the signature at its beginning.
+     * 
+     * @param path the path of the file.
+     * @return the media type, or {@code null} if no known signature was found.
+     * @throws IOException if an I/O error occurred while reading the file.
+     */
+    public static String sniff(Path path) throws IOException {
+        byte[] head = new byte[SNIFFED_LENGTH];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) != -1) {
+                length += read;
+            }
+        }
+        return sniff(head, length);
+    }
+    
+    static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', 0x0d, 0x0a, 0x1a, 0x0a)) {
+            return "image/png";
+        } else if (startsWith(head, length, 0, 0xff, 0xd8, 0xff)) {
+            return "image/jpeg";
+        } else if (startsWith(head, length, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        } else if (startsWith(head, length, 0, 'R', 'I', 'F', 'F') && startsWith(head, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        } else if (startsWith(head, length, 0, 'w', 'O', 'F', 'F')) {
+            return "font/woff";
+        } else if (startsWith(head, length, 0, 'w', 'O', 'F', '2')) {
+            return "font/woff2";
+        } else if (startsWith(head, length, 0, 'O', 'T', 'T', 'O')) {
+            return "font/otf";
+        } else if (startsWith(head, length, 0, 0x00, 0x01, 0x00, 0x00) || startsWith(head, length, 0, 't', 'r', 'u', 'e')) {
+            return "font/ttf";
+        } else if (startsWith(head, length, 0, 'I', 'D', '3')) {
+            return "audio/mpeg";
+        } else if (startsWith(head, length, 4, 'f', 't', 'y', 'p')) {
+            return "video/mp4";
+        }
+        String text = new String(head, 0, length, StandardCharsets.ISO_8859_1);
+        if (text.contains("<svg") && !text.contains("<html")) {
+            return "image/svg+xml";
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] head, int length, int offset, int... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[offset + i] & 0xff) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private MediaTypes() {
+    }
+}
@@ -0,0 +1,244 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Builder of the EPUB navigation document.
+ * 
+ * <p>The entries of the table of contents are given in their reading order, 
+ * and are nested by their heading levels when the document is written.</p>
+ */
+public class NavigationDocumentBuilder {
+
+    private static final String EPUB_NAMESPACE_URI = "http://www.idpf.org/2007/ops";
+    private static final String XML_NAMESPACE_URI = "http://www.w3.org/XML/1998/namespace";
+    
+    private String title = "Table of Contents";
+    private String language;
+    private final List<Entry> entries = new ArrayList<>();
+    
+    public NavigationDocumentBuilder() {
+    }
+    
+    public NavigationDocumentBuilder title(String title) {
+        if (title != null) {
+            this.title = title;
+        }
+        return this;
+    }
+    
+    public NavigationDocumentBuilder language(String language) {
+        if (language != null) {
+            this.language = language;
+        }
+        return this;
+    }
+    
+    /**
+     * Adds an entry to the table of contents.
+     * 
+     * @param level the level of the heading, from 1 to 6.
+     * @param page the path of the page, relative to the navigation document.
+     * @param fragment the identifier of the heading in the page, can be {@code null}.
+     * @param label the text of the entry.
+     * @return this builder.
+     */
+    public NavigationDocumentBuilder entry(int level, Path page, String fragment, String label) {
+        String href = page.toString().replaceAll("\\\\", "/");
+        if (fragment != null && !fragment.isEmpty()) {
+            href = href + "#" + fragment;
+        }
+        this.entries.add(new Entry(level, href, label));
+        return this;
+    }
+    
+    public int getEntryCount() {
+        return entries.size();
+    }
+    
+    /**
+     * Writes the navigation document to the stream.
+     * 
+     * @param stream the stream to which the document will be written.
+     * @throws IOException if an error occurred while writing the document.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newFactory().createXMLStreamWriter(stream, "UTF-8");
+            new StreamGenerator(writer).generate();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+    
+    private static class Entry {
+        
+        private final int level;
+        private final String href;
+        private final String label;
+        
+        Entry(int level, String href, String label) {
+            this.level = level;
+            this.href = href;
+            this.label = label;
+        }
+    }
+    
+    private class StreamGenerator {
+        
+        private final XMLStreamWriter writer;
+        private int depth;
+        
+        public StreamGenerator(XMLStreamWriter writer) {
+            this.writer = writer;
+        }
+        
+        public void generate() throws XMLStreamException {
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters("\n");
+            writer.writeDTD("<!DOCTYPE html>");
+            writer.writeCharacters("\n");
+            writer.writeStartElement("html");
+            writer.writeDefaultNamespace(HtmlSpec.NAMESPACE_URL);
+            writer.writeNamespace("epub", EPUB_NAMESPACE_URI);
+            if (language != null) {
+                writer.writeAttribute("lang", language);
+                writer.writeAttribute("xml", XML_NAMESPACE_URI, "lang", language);
+            }
+            depth++;
+            startElement("head");
+            indent();
+            writer.writeEmptyElement("meta");
+            writer.writeAttribute("charset", "UTF-8");
+            writeTextElement("title", title);
+            endElement();
+            startElement("body");
+            startElement("nav");
+            writer.writeAttribute("epub", EPUB_NAMESPACE_URI, "type", "toc");
+            writer.writeAttribute("id", "toc");
+            writeTextElement("h1", title);
+            writeList();
+            endElement();
+            endElement();
+            depth--;
+            indent();
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+            writer.writeEndDocument();
+        }
+        
+        /**
+         * Writes the entries as nested lists.
+         * Each level in the stack is the lowest heading level of the items in an open list.
+         * Every item has at most one nested list, which is reused by the following entries
+         * until an entry belongs to the list of an ancestor.
+         * The list links to the navigation document itself if no entries were given,
+         * because an empty list is not allowed.
+         */
+        private void writeList() throws XMLStreamException {
+            startElement("ol");
+            List<Entry> items = entries.isEmpty() ? Collections.singletonList(new Entry(1, "#toc", title)) : entries;
+            Deque<Integer> levels = new ArrayDeque<>();
+            boolean itemOpen = false;
+            for (Entry entry: items) {
+                if (levels.isEmpty()) {
+                    levels.push(entry.level);
+                }
+                while (levels.size() > 1 && parentLevel(levels) >= entry.level) {
+                    endElement();
+                    endElement();
+                    levels.pop();
+                }
+                if (levels.peek() > entry.level) {
+                    // the open list is reused for the entry of the higher level.
+                    levels.pop();
+                    levels.push(entry.level);
+                }
+                if (itemOpen) {
+                    if (entry.level > levels.peek()) {
+                        startElement("ol");
+                        levels.push(entry.level);
+                    } else {
+                        endElement();
+                    }
+                }
+                startElement("li");
+                indent();
+                writer.writeStartElement("a");
+                writer.writeAttribute("href", entry.href);
+                writer.writeCharacters(entry.label);
+                writer.writeEndElement();
+                itemOpen = true;
+            }
+            if (itemOpen) {
+                endElement();
+            }
+            while (levels.size() > 1) {
+                endElement();
+                endElement();
+                levels.pop();
+            }
+            endElement();
+        }
+        
+        private int parentLevel(Deque<Integer> levels) {
+            Iterator<Integer> it = levels.iterator();
+            it.next();
+            return it.next();
+        }
+        
+        private void writeTextElement(String name, String text) throws XMLStreamException {
+            startElement(name);
+            writer.writeCharacters(text);
+            writer.writeEndElement();
+            depth--;
+        }
+        
+        private void startElement(String name) throws XMLStreamException {
+            indent();
+            writer.writeStartElement(name);
+            depth++;
+        }
+        
+        private void endElement() throws XMLStreamException {
+            depth--;
+            indent();
+            writer.writeEndElement();
+        }
+        
+        private void indent() throws XMLStreamException {
+            writer.writeCharacters("\n");
+            for (int i = 0; i < depth; i++) {
+                writer.writeCharacters("    ");
+            }
+        }
+    }
+}
@@ -15,18 +15,29 @@
  */
 package io.github.i49.spine.common;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
 
 public class PackageDocumentBuilder {
 
@@ -38,7 +49,8 @@ public class PackageDocumentBuilder {
     private String rights;
     
     private List<Path> pages = Collections.emptyList();
-    private Set<Path> resources = Collections.emptySet();
+    private Map<Path, String> resources = Collections.emptyMap();
+    private Path navigation;
     
     private static final DateTimeFormatter ISO8601_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
 
@@ -93,14 +105,69 @@ public class PackageDocumentBuilder {
     }
     
     public PackageDocumentBuilder resoures(Set<Path> resources) {
+        Map<Path, String> map = new LinkedHashMap<>();
+        for (Path resource: resources) {
+            String mediaType = MediaTypes.fromFileName(resource.getFileName().toString());
+            map.put(resource, (mediaType != null) ? mediaType : MediaTypes.DEFAULT_MEDIA_TYPE);
+        }
+        this.resources = map;
+        return this;
+    }
+    
+    /**
+     * Specifies the resources with their media types.
+     * 
+     * @param resources the map from the paths of the resources to their media types.
+     * @return this builder.
+     */
+    public PackageDocumentBuilder resources(Map<Path, String> resources) {
         this.resources = resources;
         return this;
     }
+    
+    /**
+     * Specifies the navigation document of the publication.
+     * 
+     * @param navigation the path of the navigation document.
+     * @return this builder.
+     */
+    public PackageDocumentBuilder navigation(Path navigation) {
+        this.navigation = navigation;
+        return this;
+    }
  
+    /**
+     * Builds the package document in memory.
+     * The document is parsed from the output of {@link #writeTo(OutputStream)}.
+     * 
+     * @return the package document.
+     */
     public Document build() {
-        Document doc = Documents.create();
-        new Generator(doc).generate();
-        return doc;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            writeTo(stream);
+            return Documents.parse(new ByteArrayInputStream(stream.toByteArray()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SAXException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Writes the package document directly to the stream, without building the document in memory.
+     * 
+     * @param stream the stream to which the document will be written.
+     * @throws IOException if an error occurred while writing the document.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newFactory().createXMLStreamWriter(stream, "UTF-8");
+            new StreamGenerator(writer).generate();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
     }
     
     private String getIdentifier() {
@@ -140,115 +207,134 @@ public class PackageDocumentBuilder {
         return Optional.ofNullable(rights);
     }
     
-    private class Generator {
-        
-        private static final String NAMESPACE_URI = "http://www.idpf.org/2007/opf";
-        private static final String DC_NAMESPACE_URI = "http://purl.org/dc/elements/1.1/";
-        private static final String PUBLICAITON_IDENTIFIER = "pub-id";
-        
-        private final Document doc;
+    private static final String NAMESPACE_URI = "http://www.idpf.org/2007/opf";
+    private static final String DC_NAMESPACE_URI = "http://purl.org/dc/elements/1.1/";
+    private static final String PUBLICAITON_IDENTIFIER = "pub-id";
+    private static final String NAVIGATION_IDENTIFIER = "nav";
+    
+    private static String href(Path path) {
+        return path.toString().replaceAll("\\\\", "/");
+    }
+    
+    private String getModified() {
+        OffsetDateTime lastModified = OffsetDateTime.ofInstant(getLastModified().toInstant(), ZoneOffset.UTC);
+        return lastModified.format(ISO8601_FORMATTER);
+    }
+    
+    /**
+     * Generator which writes the package document as a stream of events.
+     * Memory required does not depend on the number of the manifest items.
+     */
+    private class StreamGenerator {
         
-        public Generator(Document doc) {
-            this.doc = doc;
-        }
+        private final XMLStreamWriter writer;
+        private int depth;
         
-        public void generate() {
-            this.doc.appendChild(createPackage());
+        public StreamGenerator(XMLStreamWriter writer) {
+            this.writer = writer;
         }
         
-        private Element createPackage() {
-            Element e = doc.createElementNS(NAMESPACE_URI, "package");
-            e.setAttribute("version", "3.0");
-            e.setAttribute("unique-identifier", PUBLICAITON_IDENTIFIER);
-            e.appendChild(createMetadata());
-            e.appendChild(createManifest());
-            e.appendChild(createSpine());
-            return e;
+        public void generate() throws XMLStreamException {
+            writer.writeStartDocument("UTF-8", "1.0");
+            startElement("package");
+            writer.writeDefaultNamespace(NAMESPACE_URI);
+            writer.writeAttribute("unique-identifier", PUBLICAITON_IDENTIFIER);
+            writer.writeAttribute("version", "3.0");
+            writeMetadata();
+            writeManifest();
+            writeSpine();
+            endElement();
+            writer.writeCharacters("\n");
+            writer.writeEndDocument();
         }
         
-        private Element createMetadata() {
-            Element e = doc.createElementNS(NAMESPACE_URI, "metadata"); 
-            e.setAttribute("xmlns:dc", DC_NAMESPACE_URI);
-            
-            Element identifierElement = doc.createElementNS(DC_NAMESPACE_URI, "dc:identifier");
-            identifierElement.setAttribute("id", PUBLICAITON_IDENTIFIER);
-            identifierElement.setTextContent(getIdentifier());
-            e.appendChild(identifierElement);
-
-            Element titleElement = doc.createElementNS(DC_NAMESPACE_URI, "dc:title");
-            titleElement.setTextContent(getTitle());
-            e.appendChild(titleElement);
-            
-            Element languageElement = doc.createElementNS(DC_NAMESPACE_URI, "dc:language");
-            languageElement.setTextContent(getLanguage());
-            e.appendChild(languageElement);
-            
-            OffsetDateTime lastModified = OffsetDateTime.ofInstant(getLastModified().toInstant(), ZoneOffset.UTC);
-            Element modifiedElement = doc.createElementNS(NAMESPACE_URI, "meta");
-            modifiedElement.setAttribute("property", "dcterms:modified");
-            modifiedElement.setTextContent(lastModified.format(ISO8601_FORMATTER));
-            e.appendChild(modifiedElement);
-            
+        private void writeMetadata() throws XMLStreamException {
+            startElement("metadata");
+            writer.writeNamespace("dc", DC_NAMESPACE_URI);
+            startElement("dc:identifier");
+            writer.writeAttribute("id", PUBLICAITON_IDENTIFIER);
+            writer.writeCharacters(getIdentifier());
+            writer.writeEndElement();
+            depth--;
+            writeTextElement("dc:title", getTitle());
+            writeTextElement("dc:language", getLanguage());
+            startElement("meta");
+            writer.writeAttribute("property", "dcterms:modified");
+            writer.writeCharacters(getModified());
+            writer.writeEndElement();
+            depth--;
             for (String author: getAuthors()) {
-                Element child = doc.createElementNS(DC_NAMESPACE_URI, "dc:creator");
-                child.setTextContent(author);
-                e.appendChild(child);
+                writeTextElement("dc:creator", author);
+            }
+            if (getRights().isPresent()) {
+                writeTextElement("dc:rights", getRights().get());
             }
-            
-            getRights().ifPresent(value->{
-                Element child = doc.createElementNS(DC_NAMESPACE_URI, "dc:rights");
-                child.setTextContent(value);
-                e.appendChild(child);
-            });
-            
-            return e;
+            endElement();
         }
         
-        private Element createManifest() {
-            Element e = doc.createElementNS(NAMESPACE_URI, "manifest");
+        private void writeManifest() throws XMLStreamException {
+            startElement("manifest");
+            if (navigation != null) {
+                writeItem(NAVIGATION_IDENTIFIER, href(navigation), "application/xhtml+xml");
+                writer.writeAttribute("properties", "nav");
+            }
             int i = 1;
             for (Path page: pages) {
-                Element item = doc.createElementNS(NAMESPACE_URI, "item");
-                item.setAttribute("id", "p" + i++);
-                item.setAttribute("href", href(page));
-                item.setAttribute("media-type", "application/xhtml+xml");
-                e.appendChild(item);
+                writeItem("p" + i++, href(page), "application/xhtml+xml");
             }
             i = 1;
-            for (Path resource: resources) {
-                Element item = doc.createElementNS(NAMESPACE_URI, "item");
-                item.setAttribute("id", "r" + i++);
-                item.setAttribute("href", href(resource));
-                item.setAttribute("media-type", guessMediaType(resource));
-                e.appendChild(item);
+            for (Map.Entry<Path, String> resource: resources.entrySet()) {
+                writeItem("r" + i++, href(resource.getKey()), resource.getValue());
             }
-            return e;
+            endElement();
         }
         
-        private String href(Path path) {
-            return path.toString().replaceAll("\\\\", "/");
+        private void writeItem(String id, String href, String mediaType) throws XMLStreamException {
+            indent();
+            writer.writeEmptyElement("item");
+            writer.writeAttribute("href", href);
+            writer.writeAttribute("id", id);
+            writer.writeAttribute("media-type", mediaType);
         }
         
-        private String guessMediaType(Path path) {
-            String name = path.getFileName().toString();
-            if (name.endsWith(".png")) {
-                return "image/png";
-            } else if (name.endsWith(".jpeg") || name.endsWith(".jpg")) {
-                return "image/jpeg";
-            } else if (name.endsWith(".gif")) {
-                return "image/gif";
+        private void writeSpine() throws XMLStreamException {
+            startElement("spine");
+            for (int i = 1; i <= pages.size(); i++) {
+                indent();
+                writer.writeEmptyElement("itemref");
+                writer.writeAttribute("idref", "p" + i);
             }
-            return null;
+            endElement();
         }
-
-        private Element createSpine() {
-            Element e = doc.createElementNS(NAMESPACE_URI, "spine"); 
-            for (int i = 1; i <= pages.size(); i++) {
-                Element itemref = doc.createElementNS(NAMESPACE_URI, "itemref");
-                itemref.setAttribute("idref", "p" + i);
-                e.appendChild(itemref);
+        
+        private void writeTextElement(String name, String text) throws XMLStreamException {
+            startElement(name);
+            writer.writeCharacters(text);
+            writer.writeEndElement();
+            depth--;
+        }
+        
+        private void startElement(String name) throws XMLStreamException {
+            indent();
+            if (name.startsWith("dc:")) {
+                writer.writeStartElement("dc", name.substring(3), DC_NAMESPACE_URI);
+            } else {
+                writer.writeStartElement(name);
+            }
+            depth++;
+        }
+        
+        private void endElement() throws XMLStreamException {
+            depth--;
+            indent();
+            writer.writeEndElement();
+        }
+        
+        private void indent() throws XMLStreamException {
+            writer.writeCharacters("\n");
+            for (int i = 0; i < depth; i++) {
+                writer.writeCharacters("    ");
             }
-            return e;
         }
     }
 }
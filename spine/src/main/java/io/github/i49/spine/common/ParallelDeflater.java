@@ -0,0 +1,164 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compressor which deflates the contents of entries concurrently.
+ * 
+ * <p>Large contents are split into blocks of fixed size, 
+ * and each block is deflated by an independent {@link Deflater}
+ * primed with the last 32KB of the preceding block.
+ * The compressed data depends only on the content, 
+ * not on the number of threads or the order of completion.</p>
+ */
+class ParallelDeflater {
+
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    
+    private final ExecutorService executor;
+    
+    ParallelDeflater(ExecutorService executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Content being deflated.
+     */
+    class Deflated {
+        
+        private final int size;
+        private final Future<Long> crc;
+        private final List<Future<byte[]>> blocks;
+        
+        private Deflated(byte[] content, int level) {
+            this.size = content.length;
+            this.crc = executor.submit(()->checksum(content));
+            this.blocks = new ArrayList<>();
+            int offset = 0;
+            do {
+                final int start = offset;
+                final int end = Math.min(start + BLOCK_SIZE, content.length);
+                this.blocks.add(executor.submit(()->deflate(content, start, end, level)));
+                offset = end;
+            } while (offset < content.length);
+        }
+        
+        int getSize() {
+            return size;
+        }
+        
+        long getCrc() throws ExecutionException, InterruptedException {
+            return crc.get();
+        }
+        
+        /**
+         * Waits for the all blocks and returns the deflated data.
+         * 
+         * @return the deflated data.
+         */
+        byte[] getData() throws ExecutionException, InterruptedException {
+            if (blocks.size() == 1) {
+                return blocks.get(0).get();
+            }
+            List<byte[]> results = new ArrayList<>(blocks.size());
+            int length = 0;
+            for (Future<byte[]> block: blocks) {
+                byte[] result = block.get();
+                results.add(result);
+                length += result.length;
+            }
+            byte[] data = new byte[length];
+            int offset = 0;
+            for (byte[] result: results) {
+                System.arraycopy(result, 0, data, offset, result.length);
+                offset += result.length;
+            }
+            return data;
+        }
+    }
+    
+    /**
+     * Starts deflating the content.
+     * 
+     * @param content the content to deflate.
+     * @param level the compression level.
+     * @return the content being deflated.
+     */
+    Deflated submit(byte[] content, int level) {
+        return new Deflated(content, level);
+    }
+    
+    /**
+     * Deflates a block of the content.
+     * All blocks except the last one end with a sync flush, 
+     * so that the blocks can be concatenated into a single deflate stream.
+     */
+    private static byte[] deflate(byte[] content, int start, int end, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (start > 0) {
+                int dictionaryStart = Math.max(0, start - DICTIONARY_SIZE);
+                deflater.setDictionary(content, dictionaryStart, start - dictionaryStart);
+            }
+            boolean last = (end == content.length);
+            deflater.setInput(content, start, end - start);
+            if (last) {
+                deflater.finish();
+            }
+            byte[] buffer = new byte[(end - start) + (end - start) / 1000 + 64];
+            int length = 0;
+            while (true) {
+                if (length == buffer.length) {
+                    byte[] larger = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffer = larger;
+                }
+                if (last) {
+                    length += deflater.deflate(buffer, length, buffer.length - length);
+                    if (deflater.finished()) {
+                        break;
+                    }
+                } else {
+                    int written = deflater.deflate(buffer, length, buffer.length - length, Deflater.SYNC_FLUSH);
+                    length += written;
+                    if (length < buffer.length && deflater.needsInput()) {
+                        break;
+                    }
+                }
+            }
+            byte[] result = new byte[length];
+            System.arraycopy(buffer, 0, result, 0, length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static long checksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
@@ -16,57 +16,240 @@
 package io.github.i49.spine.common;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+
+import io.github.i49.spine.message.Message;
 
 /**
  * A writer for EPUB file.
+ * 
+ * <p>The entries are deflated concurrently and written in the order of their names,
+ * following the {@code mimetype} entry which is stored first without compression.
+ * The entries which should not be compressed according to the {@link CompressionPolicy} 
+ * are transferred directly from the files.</p>
+ * 
+ * <p>The output depends only on the files in the base directory and the last modified time given to this writer.
+ * The archive is written to a temporary file, which replaces the target when it is completed.</p>
+ * 
+ * <p>If the previous publication is given, the compressed data of the entries
+ * which were not changed since the previous publication are copied without recompression.</p>
  */
 public class PublicationWriter {
+
+    private static final Logger log = Logger.getLogger(PublicationWriter.class.getName());
     
-    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    // the total size of the entries read ahead of the writer.
+    private static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
     
     private final Path baseDir;
-    private ZipOutputStream zstream;
+    private int parallelism;
+    private long lastModified;
+    private CompressionPolicy compressionPolicy;
+    private Path previousPublication;
+    private int reusedEntries;
+    private ZipArchiveWriter zstream;
+    private ParallelDeflater deflater;
+    private ZipArchiveReader previous;
+    
+    /**
+     * Entry waiting to be written.
+     */
+    private static class PendingEntry {
+        
+        final String name;
+        final ParallelDeflater.Deflated content;
+        final ZipArchiveReader.Entry previous;
+        final Path stored;
+        
+        PendingEntry(String name, ParallelDeflater.Deflated content) {
+            this.name = name;
+            this.content = content;
+            this.previous = null;
+            this.stored = null;
+        }
+
+        PendingEntry(ZipArchiveReader.Entry previous) {
+            this.name = previous.name;
+            this.content = null;
+            this.previous = previous;
+            this.stored = null;
+        }
+
+        PendingEntry(String name, Path stored) {
+            this.name = name;
+            this.content = null;
+            this.previous = null;
+            this.stored = stored;
+        }
+    }
     
     public PublicationWriter(Path baseDir) {
         this.baseDir = baseDir;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.compressionPolicy = new MediaTypeCompressionPolicy();
+        this.lastModified = System.currentTimeMillis();
     }
     
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Specifies the last modified time of all entries.
+     * 
+     * @param lastModified the time in milliseconds since the epoch.
+     */
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    public Path getPreviousPublication() {
+        return previousPublication;
+    }
+
+    /**
+     * Specifies the publication from which unchanged entries are copied.
+     * 
+     * @param previousPublication the path of the previous publication, which can be the same as the target.
+     */
+    public void setPreviousPublication(Path previousPublication) {
+        this.previousPublication = previousPublication;
+    }
+    
+    /**
+     * Returns the number of the entries copied from the previous publication by the last write.
+     * 
+     * @return the number of the reused entries.
+     */
+    public int getReusedEntries() {
+        return reusedEntries;
+    }
+
+    /**
+     * Writes the publication.
+     * 
+     * <p>If the previous publication cannot be read, all entries are compressed again.
+     * The publication is written into a temporary file first, which is removed on failure.</p>
+     * 
+     * @param target the path of the publication to write.
+     */
     public void writeTo(Path target) {
-        try (OutputStream stream = Files.newOutputStream(target)) {
-            try (ZipOutputStream zstream = new ZipOutputStream(stream, CHARSET)) {
+        this.reusedEntries = 0;
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            ZipArchiveReader previous = openPreviousPublication();
+            if (previous != null) {
+                try {
+                    writeTo(temp, previous);
+                } catch (UncheckedIOException | IllegalArgumentException e) {
+                    // the entries of the corrupt publication could not be copied.
+                    ignorePreviousPublication(e);
+                    writeTo(temp, null);
+                } finally {
+                    previous.close();
+                }
+            } else {
+                writeTo(temp, null);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteTemporaryFile(temp);
+        }
+    }
+    
+    private ZipArchiveReader openPreviousPublication() {
+        if (this.previousPublication == null || !Files.exists(this.previousPublication)) {
+            return null;
+        }
+        try {
+            return new ZipArchiveReader(this.previousPublication);
+        } catch (IOException | RuntimeException e) {
+            ignorePreviousPublication(e);
+            return null;
+        }
+    }
+    
+    private void ignorePreviousPublication(Exception e) {
+        Throwable cause = (e instanceof UncheckedIOException) ? e.getCause() : e;
+        log.warning(Message.PREVIOUS_PUBLICATION_IGNORED.with(this.previousPublication, cause.getMessage()));
+        this.reusedEntries = 0;
+    }
+    
+    private static void deleteTemporaryFile(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            log.warning(e.getMessage());
+        }
+    }
+    
+    private void writeTo(Path target, ZipArchiveReader previous) {
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+        try (FileChannel channel = FileChannel.open(target, 
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            try (ZipArchiveWriter zstream = new ZipArchiveWriter(channel, this.lastModified)) {
                 this.zstream = zstream;
+                this.deflater = new ParallelDeflater(executor);
+                this.previous = previous;
                 writeRaw(baseDir.resolve("mimetype"));
                 weiteAllDirectories(baseDir);
+                zstream.finish();
             }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
+        } finally {
+            this.previous = null;
+            executor.shutdownNow();
         }
     }
 
     private void writeRaw(Path path) throws IOException {
-        ZipEntry entry = openEntry(path, ZipEntry.STORED);
-        byte[] content = Files.readAllBytes(path);
-        entry.setSize(content.length);
-        entry.setCrc(computeCrc(content));
-        zstream.putNextEntry(entry);
-        zstream.write(content);
-        zstream.closeEntry();
+        zstream.writeStored(entryNameOf(path), path);
     }
     
     private void weiteAllDirectories(Path root) throws IOException {
-        Files.list(root)
-            .filter(PublicationWriter::isNormalDirectory)
-            .forEach(this::writeAllEntries);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(root)) {
+            for (Path dir: stream.filter(PublicationWriter::isNormalDirectory).sorted().collect(Collectors.toList())) {
+                files.addAll(listAllEntries(dir));
+            }
+        }
+        writeAllEntries(files);
     }
     
     private static boolean isNormalDirectory(Path path) {
@@ -74,53 +257,89 @@ public class PublicationWriter {
                !path.getFileName().toString().startsWith(".");
     }
     
-    private void writeAllEntries(Path root) {
-        try {
-            Files.walk(root).filter(Files::isRegularFile).forEach(this::processEntry);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    private static List<Path> listAllEntries(Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
         }
     }
     
-    private void processEntry(Path path) {
-        try {
-            writeEntry(path);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    /**
+     * Reads the entries ahead and writes them as soon as their compression completes.
+     */
+    private void writeAllEntries(List<Path> files) throws IOException {
+        Deque<PendingEntry> pending = new ArrayDeque<>();
+        long pendingBytes = 0;
+        for (Path path: files) {
+            String name = entryNameOf(path);
+            int level = compressionPolicy.getLevel(name, Files.size(path), CompressionPolicy.headOf(path));
+            if (level == CompressionPolicy.STORED) {
+                pending.add(new PendingEntry(name, path));
+                continue;
+            }
+            byte[] content = Files.readAllBytes(path);
+            ZipArchiveReader.Entry unchanged = findUnchangedEntry(name, content);
+            if (unchanged != null) {
+                pending.add(new PendingEntry(unchanged));
+                continue;
+            }
+            pending.add(new PendingEntry(name, deflater.submit(content, level)));
+            pendingBytes += content.length;
+            while (pendingBytes > MAX_PENDING_BYTES) {
+                pendingBytes -= writeEntry(pending.remove());
+            }
         }
-    }
-    
-    private void writeEntry(Path path) throws IOException {
-        ZipEntry entry = openEntry(path, ZipEntry.DEFLATED);
-        zstream.putNextEntry(entry);
-        try (InputStream in = Files.newInputStream(path)) {
-            copyBytes(in, zstream);
+        while (!pending.isEmpty()) {
+            writeEntry(pending.remove());
         }
-        zstream.closeEntry();
-    }
-    
-    private ZipEntry openEntry(Path path, int method) throws IOException {
-        Path relative = baseDir.relativize(path);
-        String name = relative.toString().replaceAll("\\\\", "/");
-        ZipEntry entry = new ZipEntry(name);
-        entry.setMethod(method);
-        return entry;
     }
     
-    private static long computeCrc(byte[] content) {
+    /**
+     * Finds the entry in the previous publication which has the same content.
+     * 
+     * @param name the name of the entry.
+     * @param content the current content of the entry.
+     * @return found entry, or {@code null} if the entry was added or modified.
+     */
+    private ZipArchiveReader.Entry findUnchangedEntry(String name, byte[] content) {
+        if (previous == null) {
+            return null;
+        }
+        ZipArchiveReader.Entry entry = previous.getEntry(name);
+        if (entry == null || entry.size != content.length || entry.method != ZipEntry.DEFLATED) {
+            return null;
+        }
         CRC32 crc = new CRC32();
         crc.update(content);
-        return crc.getValue();
+        return (crc.getValue() == entry.crc) ? entry : null;
     }
     
-    private static long copyBytes(InputStream in, OutputStream out) throws IOException {
-        long total = 0;
-        byte[] buffer = new byte[128 * 1024];
-        int len;
-        while ((len = in.read(buffer)) != -1) {
-            out.write(buffer, 0, len);
-            total += len;
+    private int writeEntry(PendingEntry entry) throws IOException {
+        if (entry.stored != null) {
+            zstream.writeStored(entry.name, entry.stored);
+            return 0;
         }
-        return total;
+        if (entry.previous != null) {
+            ZipArchiveReader.Entry unchanged = entry.previous;
+            byte[] data = previous.readRawData(unchanged);
+            zstream.writeEntry(unchanged.name, unchanged.method, unchanged.crc, unchanged.size, data, data.length);
+            reusedEntries++;
+            return 0;
+        }
+        try {
+            ParallelDeflater.Deflated content = entry.content;
+            byte[] data = content.getData();
+            zstream.writeEntry(entry.name, ZipEntry.DEFLATED, content.getCrc(), content.getSize(), data, data.length);
+            return content.getSize();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+    
+    private String entryNameOf(Path path) {
+        Path relative = baseDir.relativize(path);
+        return relative.toString().replaceAll("\\\\", "/");
     }
 }
@@ -0,0 +1,135 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A writer for EPUB file which appends each entry as soon as it is produced.
+ * 
+ * <p>The archive is written to a partial file, which is moved to the target
+ * when the writer is finished. If the writer was interrupted,
+ * all entries written so far can be recovered from the partial file 
+ * by {@link #recover(Path, Path)}.</p>
+ */
+public class StreamingPublicationWriter implements Closeable {
+
+    private static final byte[] MIMETYPE = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+    
+    private final Path target;
+    private final Path partial;
+    private final ZipArchiveWriter writer;
+    private CompressionPolicy compressionPolicy;
+    
+    /**
+     * Starts writing the publication.
+     * 
+     * @param target the path of the publication.
+     * @param partial the path of the partial file.
+     * @param lastModified the last modified time of all entries, in milliseconds since the epoch.
+     * @throws IOException if an I/O error occurred.
+     */
+    public StreamingPublicationWriter(Path target, Path partial, long lastModified) throws IOException {
+        this.target = target;
+        this.partial = partial;
+        FileChannel channel = FileChannel.open(partial, 
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.writer = new ZipArchiveWriter(channel, lastModified);
+        this.compressionPolicy = new MediaTypeCompressionPolicy();
+        // mimetype must be the first entry and must not be compressed.
+        this.writer.writeStored("mimetype", MIMETYPE);
+    }
+    
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+    
+    /**
+     * Appends an entry to the publication.
+     * 
+     * @param name the name of the entry, relative to the root of the publication.
+     * @param content the content of the entry.
+     * @throws IOException if an I/O error occurred.
+     */
+    public void writeEntry(String name, byte[] content) throws IOException {
+        int level = this.compressionPolicy.getLevel(name, content.length, CompressionPolicy.headOf(content));
+        if (level == CompressionPolicy.STORED) {
+            this.writer.writeStored(name, content);
+        } else {
+            this.writer.writeDeflated(name, content, level);
+        }
+    }
+
+    /**
+     * Appends a file to the publication.
+     * 
+     * @param name the name of the entry, relative to the root of the publication.
+     * @param path the path of the file to append.
+     * @throws IOException if an I/O error occurred.
+     */
+    public void writeEntry(String name, Path path) throws IOException {
+        int level = this.compressionPolicy.getLevel(name, Files.size(path), CompressionPolicy.headOf(path));
+        if (level == CompressionPolicy.STORED) {
+            this.writer.writeStored(name, path);
+        } else {
+            this.writer.writeDeflated(name, Files.readAllBytes(path), level);
+        }
+    }
+    
+    /**
+     * Completes the publication and moves it to the target.
+     * 
+     * @throws IOException if an I/O error occurred.
+     */
+    public void finish() throws IOException {
+        this.writer.finish();
+        this.writer.close();
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Closes the writer, leaving the partial file if the writer was not finished.
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+    
+    /**
+     * Recovers the publication from the partial file left by an interrupted writer.
+     * The recovered publication does not have the entries that were not written before the interruption,
+     * including the package document.
+     * 
+     * @param partial the path of the partial file.
+     * @param target the path of the recovered publication.
+     * @return the number of the recovered entries.
+     * @throws IOException if an I/O error occurred.
+     */
+    public static int recover(Path partial, Path target) throws IOException {
+        return ZipArchiveWriter.recover(partial, target);
+    }
+}
@@ -37,7 +37,7 @@ public class XmlDocumentWriter extends DocumentWriter {
     }
 
     @Override
-    protected void writeDocumentTo(OutputStream stream, Document doc) throws Exception {
+    public void writeDocumentTo(OutputStream stream, Document doc) throws Exception {
         transformer.setOutputProperty(OutputKeys.ENCODING, getEncoding());
         transformer.transform(new DOMSource(doc), new StreamResult(stream));
     }
@@ -0,0 +1,210 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Low-level reader of ZIP archives, 
+ * which gives access to the compressed data of the entries without decompressing them.
+ */
+class ZipArchiveReader implements Closeable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final long MAX_32 = 0xffffffffL;
+    private static final int MAX_16 = 0xffff;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+    
+    /**
+     * Entry found in the central directory.
+     */
+    static class Entry {
+        
+        final String name;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long offset;
+        
+        Entry(String name, int method, long crc, long compressedSize, long size, long offset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.offset = offset;
+        }
+    }
+    
+    ZipArchiveReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.entries = new HashMap<>();
+        try {
+            readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Returns the entry of the specified name.
+     * 
+     * @param name the name of the entry.
+     * @return found entry, or {@code null} if the archive does not have the entry.
+     */
+    Entry getEntry(String name) {
+        return entries.get(name);
+    }
+    
+    /**
+     * Reads the data of the entry as it is stored in the archive.
+     * 
+     * @param entry the entry to read.
+     * @return the compressed data of the entry.
+     * @throws IOException if an I/O error occurred.
+     */
+    byte[] readRawData(Entry entry) throws IOException {
+        if (entry.compressedSize > Integer.MAX_VALUE) {
+            throw new ZipException("Entry is too large: " + entry.name);
+        }
+        ByteBuffer header = read(entry.offset, 30);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header of entry: " + entry.name);
+        }
+        long dataOffset = entry.offset + 30 + (header.getShort(26) & MAX_16) + (header.getShort(28) & MAX_16);
+        return read(dataOffset, (int)entry.compressedSize).array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private void readCentralDirectory() throws IOException {
+        long endOffset = findEnd();
+        ByteBuffer end = read(endOffset, END_SIZE);
+        long count = end.getShort(10) & MAX_16;
+        long directorySize = end.getInt(12) & MAX_32;
+        long directoryOffset = end.getInt(16) & MAX_32;
+        if (count == MAX_16 || directorySize == MAX_32 || directoryOffset == MAX_32) {
+            ByteBuffer locator = read(endOffset - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64End = read(locator.getLong(8), 56);
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new ZipException("Invalid ZIP64 end of central directory: " + path);
+                }
+                count = zip64End.getLong(32);
+                directorySize = zip64End.getLong(40);
+                directoryOffset = zip64End.getLong(48);
+            }
+        }
+        if (directorySize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory is too large: " + path);
+        }
+        ByteBuffer directory = read(directoryOffset, (int)directorySize);
+        int position = 0;
+        for (long i = 0; i < count; i++) {
+            if (directory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory: " + path);
+            }
+            int method = directory.getShort(position + 10) & MAX_16;
+            long crc = directory.getInt(position + 16) & MAX_32;
+            long compressedSize = directory.getInt(position + 20) & MAX_32;
+            long size = directory.getInt(position + 24) & MAX_32;
+            int nameLength = directory.getShort(position + 28) & MAX_16;
+            int extraLength = directory.getShort(position + 30) & MAX_16;
+            int commentLength = directory.getShort(position + 32) & MAX_16;
+            long offset = directory.getInt(position + 42) & MAX_32;
+            byte[] name = new byte[nameLength];
+            directory.position(position + 46);
+            directory.get(name);
+            // values which did not fit in 32 bits are found in the ZIP64 extra field.
+            int extra = position + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = directory.getShort(extra) & MAX_16;
+                int length = directory.getShort(extra + 2) & MAX_16;
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (size == MAX_32) {
+                        size = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == MAX_32) {
+                        compressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (offset == MAX_32) {
+                        offset = directory.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+            String decoded = new String(name, StandardCharsets.UTF_8);
+            entries.put(decoded, new Entry(decoded, method, crc, compressedSize, size, offset));
+            position = extraEnd + commentLength;
+        }
+    }
+    
+    /**
+     * Finds the end of central directory record, which may be followed by a comment.
+     */
+    private long findEnd() throws IOException {
+        long size = channel.size();
+        int tailLength = (int)Math.min(size, END_SIZE + MAX_16);
+        ByteBuffer tail = read(size - tailLength, tailLength);
+        for (int i = tailLength - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                return size - tailLength + i;
+            }
+        }
+        throw new ZipException("End of central directory was not found: " + path);
+    }
+    
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,419 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.common;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Low-level writer of ZIP archives.
+ * 
+ * <p>Unlike {@link java.util.zip.ZipOutputStream}, this writer puts the checksum 
+ * and the sizes of each entry into its local header instead of a trailing data descriptor.
+ * Every entry written before an interruption can be therefore found 
+ * by scanning the local headers, even if the central directory is missing.</p>
+ * 
+ * <p>Entries larger than 4GB are not supported.
+ * The ZIP64 end of central directory is written only when it is required.</p>
+ */
+class ZipArchiveWriter implements Closeable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final long MAX_32 = 0xffffffffL;
+    private static final int MAX_16 = 0xffff;
+    private static final long MAX_MAPPED_SIZE = 256 * 1024 * 1024;
+    
+    private final OutputStream out;
+    private final WritableByteChannel channel;
+    private final List<Entry> entries;
+    private final Deflater deflater;
+    private final int time;
+    private final int date;
+    private long written;
+    private boolean finished;
+    
+    /**
+     * Entry written to the archive.
+     */
+    private static class Entry {
+        
+        final byte[] name;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long offset;
+        
+        Entry(byte[] name, int method, long crc, long compressedSize, long size, long offset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.offset = offset;
+        }
+    }
+    
+    /**
+     * Constructs this writer which writes to the channel.
+     * Stored files are transferred to the channel directly.
+     * 
+     * @param channel the channel to which the archive is written.
+     * @param lastModified the last modified time of all entries.
+     */
+    ZipArchiveWriter(WritableByteChannel channel, long lastModified) {
+        this(Channels.newOutputStream(channel), channel, lastModified);
+    }
+    
+    ZipArchiveWriter(OutputStream out, long lastModified) {
+        this(out, null, lastModified);
+    }
+
+    private ZipArchiveWriter(OutputStream out, WritableByteChannel channel, long lastModified) {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        this.channel = channel;
+        this.entries = new ArrayList<>();
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        // in UTC, so that the archive does not depend on the time zone of the build.
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        c.setTimeInMillis(lastModified);
+        this.time = (c.get(Calendar.HOUR_OF_DAY) << 11) | (c.get(Calendar.MINUTE) << 5) | (c.get(Calendar.SECOND) >> 1);
+        this.date = ((Math.max(c.get(Calendar.YEAR), 1980) - 1980) << 9) | ((c.get(Calendar.MONTH) + 1) << 5) | c.get(Calendar.DAY_OF_MONTH);
+    }
+    
+    int getEntryCount() {
+        return entries.size();
+    }
+    
+    /**
+     * Writes an entry without compression.
+     * 
+     * @param name the name of the entry.
+     * @param content the content of the entry.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeStored(String name, byte[] content) throws IOException {
+        writeEntry(name, ZipEntry.STORED, checksum(content), content.length, content, content.length);
+    }
+
+    /**
+     * Writes an entry compressed by the deflate method.
+     * 
+     * @param name the name of the entry.
+     * @param content the content of the entry.
+     * @param level the compression level.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeDeflated(String name, byte[] content, int level) throws IOException {
+        byte[] buffer = new byte[content.length + content.length / 1000 + 64];
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(content);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        writeEntry(name, ZipEntry.DEFLATED, checksum(content), content.length, buffer, length);
+    }
+
+    /**
+     * Writes a file without compression.
+     * The content of the file is transferred without copying it into the heap, 
+     * if this writer was constructed with a channel.
+     * 
+     * @param name the name of the entry.
+     * @param path the path of the file.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeStored(String name, Path path) throws IOException {
+        if (finished) {
+            throw new IllegalStateException();
+        }
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = source.size();
+            long crc = checksum(source, size);
+            Entry entry = writeLocalHeader(name, ZipEntry.STORED, crc, size, size);
+            out.flush();
+            if (channel != null) {
+                long position = 0;
+                while (position < size) {
+                    position += source.transferTo(position, size - position, channel);
+                }
+            } else {
+                source.position(0);
+                InputStream in = Channels.newInputStream(source);
+                byte[] buffer = new byte[64 * 1024];
+                int len;
+                while ((len = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, len);
+                }
+                out.flush();
+            }
+            written += size;
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * Writes an entry whose data was already encoded by the specified method.
+     * 
+     * @param name the name of the entry.
+     * @param method the compression method.
+     * @param crc the checksum of the uncompressed content.
+     * @param size the size of the uncompressed content.
+     * @param data the encoded data of the entry.
+     * @param length the length of the encoded data.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeEntry(String name, int method, long crc, long size, byte[] data, int length) throws IOException {
+        if (finished) {
+            throw new IllegalStateException();
+        }
+        Entry entry = writeLocalHeader(name, method, crc, length, size);
+        writeBytes(data, length);
+        entries.add(entry);
+        // makes the entry visible to the readers of the partial archive.
+        out.flush();
+    }
+    
+    private Entry writeLocalHeader(String name, int method, long crc, long compressedSize, long size) throws IOException {
+        if (size >= MAX_32 || compressedSize >= MAX_32) {
+            throw new ZipException("Entry is too large: " + name);
+        }
+        byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+        Entry entry = new Entry(encodedName, method, crc, compressedSize, size, written);
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(VERSION);
+        writeShort(UTF8_FLAG);
+        writeShort(method);
+        writeShort(time);
+        writeShort(date);
+        writeInt(crc);
+        writeInt(compressedSize);
+        writeInt(size);
+        writeShort(encodedName.length);
+        writeShort(0);
+        writeBytes(encodedName, encodedName.length);
+        return entry;
+    }
+    
+    /**
+     * Writes the central directory and flushes the archive.
+     * 
+     * @throws IOException if an I/O error occurred.
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        long directoryOffset = written;
+        for (Entry entry: entries) {
+            writeCentralHeader(entry);
+        }
+        long directorySize = written - directoryOffset;
+        if (entries.size() >= MAX_16 || directoryOffset >= MAX_32) {
+            long zip64EndOffset = written;
+            writeInt(ZIP64_END_SIGNATURE);
+            writeLong(44);
+            writeShort(ZIP64_VERSION);
+            writeShort(ZIP64_VERSION);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(directorySize);
+            writeLong(directoryOffset);
+            writeInt(ZIP64_LOCATOR_SIGNATURE);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+        }
+        writeInt(END_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(entries.size(), MAX_16));
+        writeShort(Math.min(entries.size(), MAX_16));
+        writeInt(Math.min(directorySize, MAX_32));
+        writeInt(Math.min(directoryOffset, MAX_32));
+        writeShort(0);
+        out.flush();
+        finished = true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+    
+    /**
+     * Recovers all complete entries from the archive which was not finished.
+     * 
+     * @param partial the archive which was not finished.
+     * @param target the path of the recovered archive.
+     * @return the number of the recovered entries.
+     * @throws IOException if an I/O error occurred.
+     */
+    static int recover(Path partial, Path target) throws IOException {
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(
+                FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                System.currentTimeMillis());
+             DataInputStream in = new DataInputStream(Files.newInputStream(partial))) {
+            byte[] header = new byte[30];
+            while (true) {
+                try {
+                    in.readFully(header);
+                    if (readInt(header, 0) != LOCAL_HEADER_SIGNATURE) {
+                        break;
+                    }
+                    byte[] name = new byte[readShort(header, 26)];
+                    in.readFully(name);
+                    skipFully(in, readShort(header, 28));
+                    byte[] data = new byte[(int)(readInt(header, 18) & MAX_32)];
+                    in.readFully(data);
+                    writer.writeEntry(new String(name, StandardCharsets.UTF_8), readShort(header, 8), 
+                            readInt(header, 14) & MAX_32, readInt(header, 22) & MAX_32, data, data.length);
+                } catch (EOFException e) {
+                    // the last entry is incomplete.
+                    break;
+                }
+            }
+            writer.finish();
+            return writer.getEntryCount();
+        }
+    }
+    
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean zip64 = entry.offset >= MAX_32;
+        writeInt(CENTRAL_HEADER_SIGNATURE);
+        writeShort(zip64 ? ZIP64_VERSION : VERSION);
+        writeShort(zip64 ? ZIP64_VERSION : VERSION);
+        writeShort(UTF8_FLAG);
+        writeShort(entry.method);
+        writeShort(time);
+        writeShort(date);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 12 : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(0);
+        writeInt(zip64 ? MAX_32 : entry.offset);
+        writeBytes(entry.name, entry.name.length);
+        if (zip64) {
+            writeShort(1);
+            writeShort(8);
+            writeLong(entry.offset);
+        }
+    }
+    
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int)(value & MAX_16));
+        writeShort((int)((value >>> 16) & MAX_16));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & MAX_32);
+        writeInt(value >>> 32);
+    }
+    
+    private void writeBytes(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        written += length;
+    }
+    
+    private static long checksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+    
+    /**
+     * Computes the checksum of the file, mapping it into memory piece by piece.
+     */
+    private static long checksum(FileChannel source, long size) throws IOException {
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (position < size) {
+            long length = Math.min(size - position, MAX_MAPPED_SIZE);
+            MappedByteBuffer buffer = source.map(FileChannel.MapMode.READ_ONLY, position, length);
+            crc.update(buffer);
+            position += length;
+        }
+        return crc.getValue();
+    }
+    
+    private static int readShort(byte[] b, int offset) {
+        return (b[offset] & 0xff) | ((b[offset + 1] & 0xff) << 8);
+    }
+    
+    private static int readInt(byte[] b, int offset) {
+        return readShort(b, offset) | (readShort(b, offset + 2) << 16);
+    }
+    
+    private static void skipFully(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            n -= skipped;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.converters;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Skeletal implementation of {@link Command} holding the name and the parameters of the command.
+ */
+abstract class AbstractCommand implements Command {
+    
+    private String name;
+    private final Map<String, Object> params = new HashMap<>();
+    
+    void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getValue() {
+        return getParamAsString("value");
+    }
+    
+    public String getParamAsString(String name) {
+        return (String)params.get(name);
+    }
+    
+    public void addParams(Map<String, Object> params) {
+        this.params.putAll(params);
+    }
+    
+    @Override
+    public String toString() {
+        if (name == null) {
+            return super.toString();
+        }
+        return params.isEmpty() ? name : name + " " + new TreeMap<>(params);
+    }
+}
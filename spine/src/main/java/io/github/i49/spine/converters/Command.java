@@ -16,7 +16,6 @@
 
 package io.github.i49.spine.converters;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import io.github.i49.spine.common.HtmlDocument;
@@ -49,6 +48,7 @@ public interface Command {
         default:
             return null;
         }
+        command.setName(name);
         if (params != null) {
             command.addParams(params);
         }
@@ -56,23 +56,6 @@ public interface Command {
     }
 }
 
-abstract class AbstractCommand implements Command {
-    
-    private final Map<String, Object> params = new HashMap<>();
-    
-    public String getValue() {
-        return getParamAsString("value");
-    }
-    
-    public String getParamAsString(String name) {
-        return (String)params.get(name);
-    }
-    
-    public void addParams(Map<String, Object> params) {
-        this.params.putAll(params);
-    }
-}
-
 class AddMetaCharset extends AbstractCommand {
     
     @Override
@@ -30,6 +30,7 @@ import io.github.i49.spine.common.HtmlDocument;
 public class CommandDocumentConverter implements DocumentConverter {
 
     private final List<Command> commands;
+    private CommandStatistics statistics;
     
     public CommandDocumentConverter() {
         this.commands = new ArrayList<>();
@@ -39,10 +40,27 @@ public class CommandDocumentConverter implements DocumentConverter {
         this.commands.add(command);
     }
 
+    @Override
+    public void setStatistics(CommandStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     @Override
     public Document convert(Document doc) {
         HtmlDocument html = HtmlDocument.of(doc);
-        this.commands.forEach(c->c.execute(html));
+        if (this.statistics != null) {
+            executeAndRecord(this.commands, html, this.statistics);
+        } else {
+            this.commands.forEach(c->c.execute(html));
+        }
         return doc;
     }
+    
+    static void executeAndRecord(List<? extends Command> commands, HtmlDocument html, CommandStatistics statistics) {
+        for (Command command: commands) {
+            long startTime = System.nanoTime();
+            command.execute(html);
+            statistics.record(command, System.nanoTime() - startTime, html.getMatchCount());
+        }
+    }
 }
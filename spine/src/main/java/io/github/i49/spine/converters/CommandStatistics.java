@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.converters;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cumulative time and match counts of the commands executed by the converters.
+ * 
+ * <p>The statistics can be shared by the converters running on different threads.</p>
+ */
+public class CommandStatistics {
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    
+    /**
+     * Records an execution of the command.
+     * 
+     * @param command the command executed.
+     * @param nanos the time spent by the command in nanoseconds.
+     * @param matches the number of the nodes modified by the command.
+     */
+    public synchronized void record(Command command, long nanos, int matches) {
+        Entry entry = entries.computeIfAbsent(command.toString(), Entry::new);
+        entry.executions++;
+        entry.nanos += nanos;
+        entry.matches += matches;
+    }
+    
+    /**
+     * Returns the statistics of each command, in the order the commands were first executed.
+     * 
+     * @return the copy of the statistics.
+     */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> copy = new ArrayList<>();
+        for (Entry entry: entries.values()) {
+            copy.add(new Entry(entry));
+        }
+        return copy;
+    }
+    
+    /**
+     * Statistics of a command.
+     */
+    public static class Entry {
+        
+        private final String command;
+        private long executions;
+        private long nanos;
+        private long matches;
+        
+        private Entry(String command) {
+            this.command = command;
+        }
+        
+        private Entry(Entry other) {
+            this.command = other.command;
+            this.executions = other.executions;
+            this.nanos = other.nanos;
+            this.matches = other.matches;
+        }
+        
+        public String getCommand() {
+            return command;
+        }
+        
+        public long getExecutions() {
+            return executions;
+        }
+        
+        public long getNanos() {
+            return nanos;
+        }
+        
+        public long getMatches() {
+            return matches;
+        }
+    }
+}
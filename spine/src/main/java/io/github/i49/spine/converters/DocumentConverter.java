@@ -23,4 +23,13 @@ import org.w3c.dom.Document;
 public interface DocumentConverter {
 
     Document convert(Document doc);
+    
+    /**
+     * Sets the statistics into which the time spent by each command of this converter is recorded.
+     * Converters without commands ignore the statistics.
+     * 
+     * @param statistics the statistics, or {@code null} not to record.
+     */
+    default void setStatistics(CommandStatistics statistics) {
+    }
 }
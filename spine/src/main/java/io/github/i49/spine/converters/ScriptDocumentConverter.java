@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.i49.spine.converters;
+
+import org.w3c.dom.Document;
+
+import netscape.javascript.JSException;
+import netscape.javascript.JSObject;
+
+/**
+ * Document converter which runs a script inside the web engine on the live page.
+ *
+ * <p>The script is executed in the window of the page before the page is captured,
+ * so the elements removed by the script are never copied out of the web engine.
+ * The removed elements are also gone from the page displayed in the web engine.
+ * The captured copy of the page is left as is by {@link #convert(Document)}.</p>
+ */
+public class ScriptDocumentConverter implements DocumentConverter {
+
+    private final String script;
+
+    /**
+     * Constructs this converter.
+     *
+     * @param script the script to run on the live page.
+     */
+    public ScriptDocumentConverter(String script) {
+        // Declarations made by the script are kept out of the global scope of the page.
+        this.script = "(function() {\n" + script + "\n})();";
+    }
+
+    /**
+     * Runs the script on the live page.
+     *
+     * @param page the live page owned by the web engine.
+     * @throws ConverterException if the script failed.
+     */
+    public void execute(Document page) {
+        if (!(page instanceof JSObject)) {
+            return;
+        }
+        JSObject window = (JSObject)((JSObject)page).getMember("defaultView");
+        try {
+            window.eval(this.script);
+        } catch (JSException e) {
+            throw new ConverterException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Document convert(Document doc) {
+        return doc;
+    }
+}
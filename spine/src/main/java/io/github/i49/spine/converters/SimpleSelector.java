@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.converters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selector which can be matched against a single {@link StreamElement}
+ * without any knowledge of its ancestors or siblings.
+ *
+ * <p>Only groups of compound selectors are supported,
+ * which consist of type, universal, class, ID and attribute selectors.
+ * Combinators and pseudo-classes require the whole document tree.</p>
+ */
+class SimpleSelector {
+
+    private final List<Compound> alternatives;
+
+    private SimpleSelector(List<Compound> alternatives) {
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Compiles the selector expression.
+     *
+     * @param expression the selector expression.
+     * @return compiled selector, or {@code null} if the expression cannot be matched against a single element.
+     */
+    static SimpleSelector compile(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        List<Compound> alternatives = new ArrayList<>();
+        for (String part: expression.split(",")) {
+            Compound compound = new Parser(part.trim()).parse();
+            if (compound == null) {
+                return null;
+            }
+            alternatives.add(compound);
+        }
+        return new SimpleSelector(alternatives);
+    }
+
+    boolean matches(StreamElement element) {
+        for (Compound compound: alternatives) {
+            if (compound.matches(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Compound {
+
+        private String type;
+        private final List<Condition> conditions = new ArrayList<>();
+
+        boolean matches(StreamElement element) {
+            if (type != null && !type.equalsIgnoreCase(element.getLocalName())) {
+                return false;
+            }
+            for (Condition c: conditions) {
+                if (!c.matches(element.getAttribute(c.name))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Condition {
+
+        private final String name;
+        private final char operator;
+        private final String value;
+
+        Condition(String name, char operator, String value) {
+            this.name = name;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        boolean matches(String actual) {
+            if (actual == null) {
+                return false;
+            }
+            switch (operator) {
+            case 0:
+                return true;
+            case '=':
+                return actual.equals(value);
+            case '~':
+                for (String token: actual.trim().split("\\s+")) {
+                    if (token.equals(value)) {
+                        return true;
+                    }
+                }
+                return false;
+            case '|':
+                return actual.equals(value) || actual.startsWith(value + "-");
+            case '^':
+                return !value.isEmpty() && actual.startsWith(value);
+            case '$':
+                return !value.isEmpty() && actual.endsWith(value);
+            case '*':
+                return !value.isEmpty() && actual.contains(value);
+            default:
+                return false;
+            }
+        }
+    }
+
+    private static class Parser {
+
+        private final String text;
+        private int index;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Compound parse() {
+            if (text.isEmpty()) {
+                return null;
+            }
+            Compound compound = new Compound();
+            if (peek() == '*') {
+                index++;
+            } else if (isNameChar(peek())) {
+                compound.type = name();
+            }
+            while (index < text.length()) {
+                char c = text.charAt(index++);
+                if (c == '.') {
+                    compound.conditions.add(new Condition("class", '~', name()));
+                } else if (c == '#') {
+                    compound.conditions.add(new Condition("id", '=', name()));
+                } else if (c == '[') {
+                    Condition condition = attribute();
+                    if (condition == null) {
+                        return null;
+                    }
+                    compound.conditions.add(condition);
+                } else {
+                    // combinators and pseudo-classes
+                    return null;
+                }
+            }
+            return compound;
+        }
+
+        private Condition attribute() {
+            int end = text.indexOf(']', index);
+            if (end < 0) {
+                return null;
+            }
+            String body = text.substring(index, end);
+            index = end + 1;
+            int eq = body.indexOf('=');
+            if (eq < 0) {
+                return new Condition(body.trim(), (char)0, null);
+            }
+            char operator = '=';
+            int nameEnd = eq;
+            if (eq > 0 && "~|^$*".indexOf(body.charAt(eq - 1)) >= 0) {
+                operator = body.charAt(eq - 1);
+                nameEnd = eq - 1;
+            }
+            String name = body.substring(0, nameEnd).trim();
+            String value = unquote(body.substring(eq + 1).trim());
+            if (name.isEmpty()) {
+                return null;
+            }
+            return new Condition(name, operator, value);
+        }
+
+        private String name() {
+            int start = index;
+            while (index < text.length() && isNameChar(text.charAt(index))) {
+                index++;
+            }
+            return text.substring(start, index);
+        }
+
+        private char peek() {
+            return text.charAt(index);
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c > 0x7f;
+        }
+
+        private static String unquote(String value) {
+            if (value.length() >= 2) {
+                char first = value.charAt(0);
+                char last = value.charAt(value.length() - 1);
+                if ((first == '"' || first == '\'') && first == last) {
+                    return value.substring(1, value.length() - 1);
+                }
+            }
+            return value;
+        }
+    }
+}
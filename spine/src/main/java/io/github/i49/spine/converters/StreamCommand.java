@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.converters;
+
+import java.util.Map;
+
+import io.github.i49.spine.common.HtmlDocument;
+import io.github.i49.spine.common.HtmlSpec;
+import io.github.i49.spine.message.Message;
+
+/**
+ * Command which can be applied to each element in the event stream of a document.
+ * The same command can also be applied to an in-memory document.
+ */
+public interface StreamCommand extends Command {
+
+    /**
+     * Applies this command to the start tag of an element.
+     *
+     * @param element the element found in the event stream.
+     * @return the number of the elements or attributes modified by this command, 
+     *         counted in the same way as {@link HtmlDocument#getMatchCount()}.
+     */
+    int execute(StreamElement element);
+
+    /**
+     * Returns whether this command can be applied to the event stream.
+     *
+     * @return {@code true} if this command can be applied to the event stream.
+     */
+    boolean isStreamable();
+
+    static StreamCommand create(String name, Map<String, Object> params) {
+        AbstractStreamCommand command = null;
+        switch (name) {
+        case "addMetaCharset":
+            command = new StreamAddMetaCharset();
+            break;
+        case "remove":
+            command = new StreamRemove();
+            break;
+        case "removeAttributes":
+            command = new StreamRemoveAttributes();
+            break;
+        case "removeDataAttributes":
+            command = new StreamRemoveDataAttributes();
+            break;
+        case "replace":
+            command = new StreamReplace();
+            break;
+        case "unwrap":
+            command = new StreamUnwrap();
+            break;
+        default:
+            return null;
+        }
+        command.setName(name);
+        if (params != null) {
+            command.addParams(params);
+        }
+        command.prepare();
+        return command;
+    }
+}
+
+abstract class AbstractStreamCommand extends AbstractCommand implements StreamCommand {
+
+    private SimpleSelector selector;
+
+    /**
+     * Prepares this command after all parameters were given.
+     */
+    void prepare() {
+        this.selector = SimpleSelector.compile(getSelectorExpression());
+    }
+
+    protected String getSelectorExpression() {
+        return getValue();
+    }
+
+    protected boolean matches(StreamElement element) {
+        return selector.matches(element);
+    }
+
+    @Override
+    public boolean isStreamable() {
+        return selector != null;
+    }
+}
+
+class StreamAddMetaCharset extends AbstractStreamCommand {
+
+    @Override
+    protected String getSelectorExpression() {
+        return "head";
+    }
+
+    @Override
+    public void execute(HtmlDocument doc) {
+        doc.addMetaCharset(getValue());
+    }
+
+    @Override
+    public int execute(StreamElement element) {
+        if (!matches(element)) {
+            return 0;
+        }
+        StreamElement meta = new StreamElement(HtmlSpec.NAMESPACE_URL, element.getPrefix(), "meta");
+        meta.setAttribute("charset", getValue());
+        element.insertFirstChild(meta);
+        return 1;
+    }
+}
+
+class StreamRemove extends AbstractStreamCommand {
+
+    @Override
+    public void execute(HtmlDocument doc) {
+        doc.remove(getValue());
+    }
+
+    @Override
+    public int execute(StreamElement element) {
+        if (!matches(element)) {
+            return 0;
+        }
+        element.remove();
+        return 1;
+    }
+}
+
+class StreamRemoveAttributes extends AbstractStreamCommand {
+
+    @Override
+    void prepare() {
+        String prefix = getPrefix();
+        if (prefix == null || prefix.isEmpty()) {
+            throw new ConverterException(Message.ATTRIBUTE_PREFIX_NOT_SPECIFIED.with(this));
+        }
+        super.prepare();
+    }
+
+    @Override
+    protected String getSelectorExpression() {
+        return "*";
+    }
+
+    @Override
+    public void execute(HtmlDocument doc) {
+        doc.removeAttributesWithPrefix(getPrefix());
+    }
+
+    @Override
+    public int execute(StreamElement element) {
+        String prefix = getPrefix();
+        int before = element.getAttributes().size();
+        element.removeAttributes(name->name.startsWith(prefix));
+        return before - element.getAttributes().size();
+    }
+
+    protected String getPrefix() {
+        String prefix = getParamAsString("prefix");
+        return (prefix != null) ? prefix : getValue();
+    }
+}
+
+class StreamRemoveDataAttributes extends StreamRemoveAttributes {
+
+    @Override
+    protected String getPrefix() {
+        return "data-";
+    }
+}
+
+class StreamReplace extends AbstractStreamCommand {
+
+    @Override
+    protected String getSelectorExpression() {
+        return getParamAsString("source");
+    }
+
+    @Override
+    public void execute(HtmlDocument doc) {
+        doc.replace(getParamAsString("source"), getParamAsString("target"));
+    }
+
+    @Override
+    public int execute(StreamElement element) {
+        if (!matches(element)) {
+            return 0;
+        }
+        element.setLocalName(getParamAsString("target"));
+        element.clearAttributes();
+        return 1;
+    }
+}
+
+class StreamUnwrap extends AbstractStreamCommand {
+
+    @Override
+    public void execute(HtmlDocument doc) {
+        doc.unwrap(getValue());
+    }
+
+    @Override
+    public int execute(StreamElement element) {
+        if (!matches(element)) {
+            return 0;
+        }
+        element.unwrap();
+        return 1;
+    }
+}
@@ -0,0 +1,228 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.converters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A start tag found in the event stream of a document.
+ * Commands of {@link StreamingDocumentConverter} modify this object
+ * before it is written to the output.
+ */
+public class StreamElement {
+
+    private final String namespaceURI;
+    private final String prefix;
+    private String localName;
+    private final List<Attribute> attributes;
+    private final List<Namespace> namespaces;
+    private List<StreamElement> insertedChildren;
+    private boolean removed;
+    private boolean unwrapped;
+
+    public StreamElement(String namespaceURI, String prefix, String localName) {
+        this.namespaceURI = namespaceURI;
+        this.prefix = prefix;
+        this.localName = localName;
+        this.attributes = new ArrayList<>();
+        this.namespaces = new ArrayList<>();
+        this.insertedChildren = Collections.emptyList();
+    }
+
+    static StreamElement of(XMLStreamReader reader) {
+        StreamElement e = new StreamElement(reader.getNamespaceURI(), reader.getPrefix(), reader.getLocalName());
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            e.namespaces.add(new Namespace(reader.getNamespacePrefix(i), reader.getNamespaceURI(i)));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            e.attributes.add(new Attribute(
+                    reader.getAttributeNamespace(i),
+                    reader.getAttributePrefix(i),
+                    reader.getAttributeLocalName(i),
+                    reader.getAttributeValue(i)));
+        }
+        return e;
+    }
+
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getLocalName() {
+        return localName;
+    }
+
+    public void setLocalName(String localName) {
+        this.localName = localName;
+    }
+
+    /**
+     * Returns the value of the attribute.
+     *
+     * @param name the qualified name of the attribute.
+     * @return the value of the attribute, or {@code null} if the attribute does not exist.
+     */
+    public String getAttribute(String name) {
+        for (Attribute a: attributes) {
+            if (a.getName().equals(name)) {
+                return a.getValue();
+            }
+        }
+        return null;
+    }
+
+    public StreamElement setAttribute(String name, String value) {
+        for (Attribute a: attributes) {
+            if (a.getName().equals(name)) {
+                a.value = value;
+                return this;
+            }
+        }
+        attributes.add(new Attribute(null, null, name, value));
+        return this;
+    }
+
+    public List<Attribute> getAttributes() {
+        return Collections.unmodifiableList(attributes);
+    }
+
+    public StreamElement removeAttributes(Predicate<String> filter) {
+        Iterator<Attribute> it = attributes.iterator();
+        while (it.hasNext()) {
+            if (filter.test(it.next().getName())) {
+                it.remove();
+            }
+        }
+        return this;
+    }
+
+    public StreamElement clearAttributes() {
+        attributes.clear();
+        return this;
+    }
+
+    public List<Namespace> getNamespaces() {
+        return Collections.unmodifiableList(namespaces);
+    }
+
+    /**
+     * Inserts an empty element as the first child of this element.
+     *
+     * @param child the element to insert.
+     * @return this element.
+     */
+    public StreamElement insertFirstChild(StreamElement child) {
+        if (insertedChildren.isEmpty()) {
+            insertedChildren = new ArrayList<>();
+        }
+        insertedChildren.add(0, child);
+        return this;
+    }
+
+    public List<StreamElement> getInsertedChildren() {
+        return insertedChildren;
+    }
+
+    /**
+     * Removes this element and all of its descendants from the output.
+     */
+    public void remove() {
+        this.removed = true;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * Removes the tags of this element from the output, keeping its children.
+     */
+    public void unwrap() {
+        this.unwrapped = true;
+    }
+
+    public boolean isUnwrapped() {
+        return unwrapped;
+    }
+
+    public static class Attribute {
+
+        private final String namespaceURI;
+        private final String prefix;
+        private final String localName;
+        private String value;
+
+        private Attribute(String namespaceURI, String prefix, String localName, String value) {
+            this.namespaceURI = namespaceURI;
+            this.prefix = prefix;
+            this.localName = localName;
+            this.value = value;
+        }
+
+        public String getNamespaceURI() {
+            return namespaceURI;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public String getLocalName() {
+            return localName;
+        }
+
+        public String getName() {
+            if (prefix == null || prefix.isEmpty()) {
+                return localName;
+            }
+            return prefix + ":" + localName;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class Namespace {
+
+        private final String prefix;
+        private final String namespaceURI;
+
+        private Namespace(String prefix, String namespaceURI) {
+            this.prefix = prefix;
+            this.namespaceURI = namespaceURI;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public String getNamespaceURI() {
+            return namespaceURI;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.i49.spine.converters;
+
+/**
+ * Visitor of the converted page written by {@link StreamingDocumentConverter}.
+ */
+@FunctionalInterface
+public interface StreamVisitor {
+
+    /**
+     * Visits the start tag of an element written to the output.
+     *
+     * @param element the element written to the output.
+     */
+    void visitElement(StreamElement element);
+
+    /**
+     * Visits the text written to the output.
+     *
+     * @param text the array containing the text.
+     * @param start the offset of the text in the array.
+     * @param length the length of the text.
+     */
+    default void visitText(char[] text, int start, int length) {
+    }
+
+    /**
+     * Visits the end tag of an element written to the output.
+     */
+    default void visitEndElement() {
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.i49.spine.converters;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.HtmlDocument;
+import io.github.i49.spine.common.HtmlStreamWriter;
+
+/**
+ * Document converter which processes the event stream of a stored page
+ * and writes the converted page directly to the output.
+ *
+ * <p>Memory required by the conversion is proportional to the depth of the document,
+ * not to its size. This converter can also be applied to an in-memory document,
+ * so it can be mixed with other converters.</p>
+ */
+public class StreamingDocumentConverter implements DocumentConverter {
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+    private final List<StreamCommand> commands;
+    private String encoding;
+    private CommandStatistics statistics;
+
+    public StreamingDocumentConverter() {
+        this.commands = new ArrayList<>();
+        this.encoding = "UTF-8";
+    }
+
+    /**
+     * Combines the converters into a single streaming converter.
+     *
+     * @param converters the converters to combine.
+     * @return combined converter, or {@code null} if any of the converters cannot process the event stream.
+     */
+    public static StreamingDocumentConverter combine(List<DocumentConverter> converters) {
+        if (converters.isEmpty()) {
+            return null;
+        }
+        StreamingDocumentConverter combined = new StreamingDocumentConverter();
+        for (DocumentConverter converter: converters) {
+            if (!(converter instanceof StreamingDocumentConverter)) {
+                return null;
+            }
+            StreamingDocumentConverter streaming = (StreamingDocumentConverter)converter;
+            if (!streaming.isStreamable()) {
+                return null;
+            }
+            combined.commands.addAll(streaming.commands);
+        }
+        return combined;
+    }
+
+    public void addCommand(StreamCommand command) {
+        this.commands.add(command);
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Returns whether all commands of this converter can be applied to the event stream.
+     *
+     * @return {@code true} if this converter can process the event stream.
+     */
+    public boolean isStreamable() {
+        for (StreamCommand command: commands) {
+            if (!command.isStreamable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void setStatistics(CommandStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Document convert(Document doc) {
+        HtmlDocument html = HtmlDocument.of(doc);
+        if (this.statistics != null) {
+            CommandDocumentConverter.executeAndRecord(this.commands, html, this.statistics);
+        } else {
+            this.commands.forEach(c->c.execute(html));
+        }
+        return doc;
+    }
+
+    /**
+     * Converts the stored page.
+     *
+     * @param input the stream of the stored page.
+     * @param output the stream to which the converted page will be written.
+     * @param visitor the visitor of every element and text written to the output.
+     * @throws XMLStreamException if an error occurred while processing the page.
+     */
+    public void convert(InputStream input, OutputStream output, StreamVisitor visitor) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(input);
+        XMLStreamWriter writer = new HtmlStreamWriter(outputFactory.createXMLStreamWriter(output, getEncoding()));
+        CommandCounters counters = (this.statistics != null) ? new CommandCounters(this.commands.size()) : null;
+        try {
+            convert(reader, writer, visitor, counters);
+            writer.flush();
+            if (counters != null) {
+                counters.recordTo(this.statistics, this.commands);
+            }
+        } finally {
+            reader.close();
+            writer.close();
+        }
+    }
+
+    private void convert(XMLStreamReader reader, XMLStreamWriter writer, StreamVisitor visitor, CommandCounters counters) 
+            throws XMLStreamException {
+        // whether the end tag of each open element should be written or not.
+        Deque<Boolean> openElements = new ArrayDeque<>();
+        int skippedDepth = 0;
+        writer.writeStartDocument();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (skippedDepth > 0) {
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    skippedDepth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    skippedDepth--;
+                }
+                continue;
+            }
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                StreamElement element = StreamElement.of(reader);
+                if (counters != null) {
+                    counters.execute(this.commands, element);
+                } else {
+                    this.commands.forEach(c->c.execute(element));
+                }
+                if (element.isRemoved()) {
+                    skippedDepth = 1;
+                } else if (element.isUnwrapped()) {
+                    openElements.push(Boolean.FALSE);
+                } else {
+                    writeElement(writer, element, visitor);
+                    openElements.push(Boolean.TRUE);
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (openElements.pop()) {
+                    writer.writeEndElement();
+                    visitor.visitEndElement();
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+            case XMLStreamConstants.CDATA:
+                writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                visitor.visitText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            case XMLStreamConstants.COMMENT:
+                writer.writeComment(reader.getText());
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                writer.writeEndDocument();
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, StreamElement element, StreamVisitor visitor) throws XMLStreamException {
+        writeStartElement(writer, element);
+        visitor.visitElement(element);
+        for (StreamElement child: element.getInsertedChildren()) {
+            writeStartElement(writer, child);
+            writer.writeEndElement();
+            visitor.visitElement(child);
+            visitor.visitEndElement();
+        }
+    }
+
+    private static void writeStartElement(XMLStreamWriter writer, StreamElement element) throws XMLStreamException {
+        String namespaceURI = element.getNamespaceURI();
+        if (namespaceURI != null && !namespaceURI.isEmpty()) {
+            writer.writeStartElement(nonNull(element.getPrefix()), element.getLocalName(), namespaceURI);
+        } else {
+            writer.writeStartElement(element.getLocalName());
+        }
+        for (StreamElement.Namespace ns: element.getNamespaces()) {
+            String prefix = ns.getPrefix();
+            if (prefix == null || prefix.isEmpty()) {
+                writer.writeDefaultNamespace(ns.getNamespaceURI());
+            } else {
+                writer.writeNamespace(prefix, ns.getNamespaceURI());
+            }
+        }
+        for (StreamElement.Attribute a: element.getAttributes()) {
+            String attributeNamespace = a.getNamespaceURI();
+            if (attributeNamespace != null && !attributeNamespace.isEmpty()) {
+                writer.writeAttribute(nonNull(a.getPrefix()), attributeNamespace, a.getLocalName(), a.getValue());
+            } else {
+                writer.writeAttribute(a.getLocalName(), a.getValue());
+            }
+        }
+    }
+
+    private static String nonNull(String prefix) {
+        return (prefix != null) ? prefix : "";
+    }
+
+    /**
+     * Time and match counts of the commands accumulated while converting a page,
+     * recorded into the shared statistics only once per page.
+     */
+    private static class CommandCounters {
+        
+        private final long[] nanos;
+        private final int[] matches;
+        
+        CommandCounters(int size) {
+            this.nanos = new long[size];
+            this.matches = new int[size];
+        }
+        
+        void execute(List<StreamCommand> commands, StreamElement element) {
+            for (int i = 0; i < nanos.length; i++) {
+                long startTime = System.nanoTime();
+                matches[i] += commands.get(i).execute(element);
+                nanos[i] += System.nanoTime() - startTime;
+            }
+        }
+        
+        void recordTo(CommandStatistics statistics, List<StreamCommand> commands) {
+            for (int i = 0; i < nanos.length; i++) {
+                statistics.record(commands.get(i), nanos[i], matches[i]);
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory f = XMLInputFactory.newFactory();
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        return f;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.i49.spine.converters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.Documents;
+
+/**
+ * Document converter which transforms the document with an XSLT stylesheet.
+ *
+ * <p>The stylesheet is compiled only once into {@link Templates}, 
+ * which are shared by all converters using the same stylesheet until the stylesheet is modified.
+ * Each thread converting the pages has its own {@link Transformer},
+ * so a converter can be used by multiple threads concurrently.</p>
+ */
+public class XsltDocumentConverter implements DocumentConverter {
+
+    private static final ConcurrentMap<Path, CompiledStylesheet> compiled = new ConcurrentHashMap<>();
+
+    private final Templates templates;
+    private final Map<String, Object> parameters;
+    private final ThreadLocal<Transformer> transformers;
+
+    /**
+     * Constructs this converter.
+     *
+     * @param templates the compiled stylesheet.
+     * @param parameters the parameters passed to the stylesheet, can be {@code null}.
+     */
+    public XsltDocumentConverter(Templates templates, Map<String, Object> parameters) {
+        this.templates = templates;
+        this.parameters = (parameters != null) ? new HashMap<>(parameters) : Collections.emptyMap();
+        this.transformers = ThreadLocal.withInitial(this::createTransformer);
+    }
+
+    /**
+     * Compiles the stylesheet, or returns the stylesheet previously compiled
+     * if the stylesheet was not modified since then.
+     *
+     * <p>The stylesheet is compiled with the secure processing feature enabled,
+     * which forbids extension functions calling Java code.
+     * Other stylesheets can be included or imported only from the local file system.</p>
+     *
+     * @param stylesheet the path of the stylesheet.
+     * @return the compiled stylesheet.
+     * @throws IOException if an error occurred while reading the stylesheet.
+     * @throws TransformerConfigurationException if the stylesheet has errors.
+     */
+    public static Templates compile(Path stylesheet) throws IOException, TransformerConfigurationException {
+        Path path = stylesheet.toAbsolutePath().normalize();
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        CompiledStylesheet entry = compiled.get(path);
+        if (entry == null || !entry.lastModified.equals(lastModified)) {
+            TransformerFactory factory = TransformerFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "file");
+            Templates templates = factory.newTemplates(new StreamSource(path.toFile()));
+            entry = new CompiledStylesheet(lastModified, templates);
+            compiled.put(path, entry);
+        }
+        return entry.templates;
+    }
+
+    @Override
+    public Document convert(Document doc) {
+        Transformer transformer = transformers.get();
+        Document result = Documents.create();
+        try {
+            transformer.transform(new DOMSource(doc, doc.getDocumentURI()), new DOMResult(result));
+        } catch (TransformerException e) {
+            throw new ConverterException(e);
+        }
+        result.setDocumentURI(doc.getDocumentURI());
+        return result;
+    }
+
+    private Transformer createTransformer() {
+        try {
+            Transformer transformer = templates.newTransformer();
+            setParameters(transformer);
+            return transformer;
+        } catch (TransformerConfigurationException e) {
+            throw new ConverterException(e);
+        }
+    }
+
+    private void setParameters(Transformer transformer) {
+        for (Map.Entry<String, Object> parameter: parameters.entrySet()) {
+            transformer.setParameter(parameter.getKey(), parameter.getValue());
+        }
+    }
+
+    private static class CompiledStylesheet {
+
+        private final FileTime lastModified;
+        private final Templates templates;
+
+        CompiledStylesheet(FileTime lastModified, Templates templates) {
+            this.lastModified = lastModified;
+            this.templates = templates;
+        }
+    }
+}
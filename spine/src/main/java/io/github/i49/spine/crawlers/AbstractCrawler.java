@@ -17,33 +17,32 @@ package io.github.i49.spine.crawlers;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
-import io.github.i49.spine.common.DocumentWriter;
 import io.github.i49.spine.common.Documents;
-import io.github.i49.spine.common.HtmlDocumentWriter;
-import io.github.i49.spine.common.HtmlSpec;
-import io.github.i49.spine.common.PackageDocumentBuilder;
-import io.github.i49.spine.common.PublicationWriter;
-import io.github.i49.spine.common.XmlDocumentWriter;
+import io.github.i49.spine.common.EventLog;
 import io.github.i49.spine.converters.DocumentConverter;
-import io.github.i49.spine.crawlers.CrawlerConfiguration.Metadata;
 import io.github.i49.spine.message.Message;
 import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.concurrent.Worker.State;
 import javafx.scene.web.WebEngine;
@@ -55,96 +54,195 @@ import netscape.javascript.JSObject;
 public abstract class AbstractCrawler implements Crawler {
 
     protected static final Logger log = Logger.getLogger(AbstractCrawler.class.getName());
-    private static final String PACKAGE_DOCUMENT_NAME = "package.opf";
-    private static final String INDEX_NAME = "index.html";
+    // the time to wait for the worker to stop when the crawler was cancelled.
+    private static final long EXTRACTOR_TERMINATION_TIMEOUT = 30;
+    // whether the time to the first page was reported, which is meaningful only for the first crawler in the JVM.
+    private static final AtomicBoolean firstPageReported = new AtomicBoolean();
     
-    private String rootLocation;
     private String firatPage;
     private String lastPage;
-    private String publicationName;
     private int maxPages;
     
     private Pager pager; 
-    private Metadata metadata;
-    private final List<DocumentConverter> converters;
-  
-    private List<Path> pages;
-    private Set<Path> resources;
+    private Publication publication;
+    
+    // the worker which parses and saves the serialized pages, used only in the serialized extraction.
+    private ExecutorService extractor;
+    private int extractedPages;
+    
+    private CrawlProfile profile;
     
     private WebEngine webEngine;
-    private LayoutPolicy layoutPolicy;
-    private DocumentWriter xmlWriter;
-    private DocumentWriter htmlWriter;
+    private String userAgent;
+    private long loadStartTime;
+    private final ChangeListener<State> stateListener = this::handleStateChange;
     
     private JSObject window;
     
+    private CrawlerListener listener = (crawler, succeeded)->Platform.exit();
+    private boolean completed;
+    
     protected AbstractCrawler() {
-        this.converters = new ArrayList<>();
     }
     
     @Override
     public void configure(CrawlerConfiguration conf) throws Exception {
-        this.rootLocation = conf.getRootLocation();
         this.firatPage = conf.getFirstPage();
         this.lastPage = conf.getLastPage();
-        this.publicationName = conf.getPublicationName();
         this.maxPages = conf.getMaxPages();
-        this.metadata = conf.getMetadata();
         this.pager = createPager(conf.getPager());
 
         Path workingDirectory = Paths.get(".");
-        this.layoutPolicy = new LayoutPolicy(workingDirectory, this.publicationName);
-        this.xmlWriter = new XmlDocumentWriter();
-        this.htmlWriter = new HtmlDocumentWriter();
-        initializeDirectories(this.layoutPolicy);
+        this.publication = new Publication(conf, workingDirectory);
+        this.publication.initializeDirectories();
+        if (conf.getExtraction() == ExtractionMode.SERIALIZED) {
+            this.extractor = Executors.newSingleThreadExecutor(task->{
+                Thread thread = new Thread(task, "page-extractor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        if (conf.isProfile()) {
+            this.profile = new CrawlProfile();
+            this.publication.setCommandStatistics(this.profile.getCommandStatistics());
+        }
      }
 
     @Override
     public void addConverter(DocumentConverter converter) {
-        this.converters.add(converter);
+        this.publication.addConverter(converter);
     }
     
     @Override
     public void start(WebEngine webEngine) throws Exception {
         this.webEngine = webEngine;
-        
-        this.pages = new ArrayList<>();
-        this.resources = new LinkedHashSet<>();
+        this.userAgent = webEngine.getUserAgent();
+        this.publication.prepareConverters();
         
         this.window = (JSObject)webEngine.executeScript("window");
         this.window.setMember("crawler", this);
 
-        webEngine.getLoadWorker().stateProperty().addListener(this::handleStateChange);
+        webEngine.getLoadWorker().stateProperty().addListener(this.stateListener);
         webEngine.load(this.firatPage);
     }
     
     @Override
     public void finish() {
-        Platform.runLater(()->{
-            generatePublication();
-            Platform.exit();
-        });
+        if (this.extractor != null) {
+            // The publication is generated after all pages queued before were saved.
+            this.extractor.execute(()->{
+                boolean succeeded = generate();
+                Platform.runLater(()->complete(succeeded));
+            });
+            this.extractor.shutdown();
+        } else {
+            Platform.runLater(()->complete(generate()));
+        }
     }
     
     @Override
     public void cancel() {
-        Platform.exit();
+        if (!this.completed) {
+            if (this.extractor != null) {
+                // the publication is closed after the worker stopped using it.
+                this.extractor.shutdownNow();
+                try {
+                    this.extractor.awaitTermination(EXTRACTOR_TERMINATION_TIMEOUT, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            this.publication.close();
+        }
+        complete(false);
+    }
+    
+    @Override
+    public int getPageCount() {
+        return publication.getPageCount();
+    }
+    
+    @Override
+    public void setListener(CrawlerListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Detaches this crawler from the web engine, 
+     * which can be reused by the next crawler, and notifies the listener.
+     */
+    private void complete(boolean succeeded) {
+        if (this.completed) {
+            return;
+        }
+        this.completed = true;
+        if (this.webEngine != null) {
+            this.webEngine.getLoadWorker().stateProperty().removeListener(this.stateListener);
+            detach();
+        }
+        this.listener.crawlerCompleted(this, succeeded);
+    }
+    
+    /**
+     * Removes the listeners which this crawler added to the page displayed in the web engine.
+     * The page stays displayed after this crawler was completed, until the next crawler loads its first page.
+     */
+    protected void detach() {
+    }
+    
+    /**
+     * Returns whether this crawler was completed, successfully or not.
+     * 
+     * @return {@code true} if this crawler was completed.
+     */
+    protected boolean isCompleted() {
+        return completed;
     }
     
     public WebEngine getWebEngine() {
         return webEngine;
     }
     
-    private void initializeDirectories(LayoutPolicy policy) throws IOException {
-        Files.deleteIfExists(policy.getPublicationFile());
-        Files.createDirectories(policy.getPublicationMetaDirectory());
-        copyResource("mimetype", policy.getPublicationDirectory());
-        copyResource("container.xml", policy.getPublicationMetaDirectory());
+    private boolean generate() {
+        long startTime = System.nanoTime();
+        boolean succeeded = this.publication.generate();
+        measure("generate", this.firatPage, startTime);
+        writeProfile();
+        return succeeded;
     }
-
+    
+    private void writeProfile() {
+        if (this.profile == null) {
+            return;
+        }
+        LayoutPolicy layoutPolicy = this.publication.getLayoutPolicy();
+        try {
+            this.profile.writeTo(layoutPolicy.getProfileFile(), layoutPolicy.getProfileReportFile());
+            log.info(Message.PROFILE_WRITTEN.with(layoutPolicy.getProfileReportFile()));
+        } catch (IOException e) {
+            log.severe(e.getMessage());
+        }
+    }
+    
+    /**
+     * Records the time spent in the stage into the profile and the event log.
+     * 
+     * @return the time spent in nanoseconds.
+     */
+    private long measure(String stage, Object url, long startTime) {
+        long elapsed = System.nanoTime() - startTime;
+        if (this.profile != null) {
+            this.profile.record(stage, url.toString(), elapsed);
+        }
+        EventLog.event(stage, url, startTime);
+        return elapsed;
+    }
+    
     private void handleStateChange(ObservableValue<? extends State> value, State oldState, State newState) {
-        log.fine("State changed to: " + newState.toString());
-        if (newState == State.SUCCEEDED) {
+        log.fine(()->"State changed to: " + newState);
+        if (newState == State.SCHEDULED) {
+            this.loadStartTime = System.nanoTime();
+        } else if (newState == State.SUCCEEDED) {
             handleDocumentLoaded(webEngine.getDocument());
         } else if (newState == State.FAILED) {
             log.severe(Message.DOCUMENT_LOADING_FAILED.with(webEngine.getLocation()));
@@ -155,156 +253,155 @@ public abstract class AbstractCrawler implements Crawler {
     protected abstract void handleDocumentLoaded(Document doc);
     
     protected void processContent(Document doc) {
+        // keyed by the page itself, which is not the location of the web engine for the content frame.
+        measure("load", doc.getDocumentURI(), this.loadStartTime);
         try {
+            // found before the scripts of the converters prune the live page.
+            Element next = findNextPage();
             addPage(doc);
-            finishPage();
+            finishPage(next);
         } catch (Exception e) {
             log.severe(e.getMessage());
-            Platform.exit();
+            cancel();
+        }
+    }
+    
+    private Element findNextPage() {
+        if (this.pager == null) {
+            return null;
         }
+        return this.pager.findNext(getWebEngine().getDocument());
     }
     
-    private void finishPage() {
+    private void finishPage(Element next) {
         Document doc = getWebEngine().getDocument();
-        if (!hasMorePages(doc) || !goToNextPage(doc)) {
+        if (!hasMorePages(doc) || !goToNextPage(doc, next)) {
             finish();
         }
     }
 
     private boolean hasMorePages(Document doc) {
-        if (pages.size() >= maxPages) {
+        int pageCount = (this.extractor != null) ? this.extractedPages : publication.getPageCount();
+        if (pageCount >= maxPages) {
             return false;
         }
         String location = doc.getDocumentURI();
         return !location.startsWith(lastPage);
     }
     
-    private boolean goToNextPage(Document doc) {
+    private boolean goToNextPage(Document doc, Element next) {
         if (this.pager == null) {
             return false;
         }
-        return pager.goNext(doc);
+        if (next == null) {
+            log.warning(Message.NEXT_PAGE_NOT_FOUND.with(doc.getDocumentURI()));
+            return false;
+        }
+        // the next page may be loaded into the content frame without scheduling the web engine.
+        this.loadStartTime = System.nanoTime();
+        pager.goNext(doc, next);
+        return true;
     }
     
     protected void addPage(Document doc) {
         String location = doc.getDocumentURI();
-        Path local = mapToLocalPath(location);
+        Path local = publication.mapToLocalPath(location);
         if (local == null) {
             return;
         }
         try {
-            writeContentDocument(doc, layoutPolicy.getOriginalDirectory().resolve(local));
-            doc = convertDocument(doc);
-            writeContentDocument(doc, layoutPolicy.getPublicationContentDirectory().resolve(local));
-            log.info(Message.PAGE_WAS_SAVED.with(local));
-            writeAllImages(doc);
-            this.pages.add(local);
+            long startTime = System.nanoTime();
+            publication.runScripts(doc);
+            if (this.extractor != null) {
+                String serialized = serialize(doc);
+                measure("serialize", location, startTime);
+                this.extractedPages++;
+                this.extractor.execute(()->addSerializedPage(serialized, doc, local, location));
+            } else {
+                publication.saveOriginal(doc, local);
+                measure("save", location, startTime);
+                startTime = System.nanoTime();
+                PageOutline outline = publication.convertPage(doc, local);
+                measure("convert", location, startTime);
+                addConvertedPage(local, location, outline);
+            }
         } catch (Exception e) {
             log.severe(e.getMessage());
         }
     }
     
-    protected Document convertDocument(Document doc) throws Exception {
-        Document copied = Documents.copy(doc);
-        for (DocumentConverter converter: this.converters) {
-            converter.convert(copied);
-        }
-        return copied;
-    }
-    
     /**
-     * Maps a remote location to a path on the local filesystem.
+     * Parses and saves the serialized page on the worker thread.
+     * If the serialized page cannot be parsed, the page is copied from its DOM instead.
      * 
-     * @param location the remote location.
-     * @return the path on the local filesystem. can be {@code null}.
+     * @param serialized the serialized page.
+     * @param page the page owned by the web engine, which is still readable after the engine moved to the next page.
+     * @param local the local path of the page.
+     * @param location the remote location of the page.
      */
-    private Path mapToLocalPath(String location) {
-        if  (location.startsWith(this.rootLocation.toString())) {
-            String local = location.substring(this.rootLocation.length());
-            if (local.isEmpty() || local.endsWith("/")) {
-                local = local.concat(INDEX_NAME);
+    private void addSerializedPage(String serialized, Document page, Path local, String location) {
+        try {
+            long startTime = System.nanoTime();
+            Document doc;
+            try {
+                doc = Documents.parse(new StringReader(serialized));
+            } catch (SAXException e) {
+                log.warning(Message.PAGE_NOT_PARSED.with(location, e.getMessage()));
+                doc = copyOnApplicationThread(page);
             }
-            return Paths.get(local);
-        } else {
-            log.warning(Message.PAGE_WAS_SKIPPED.with(location));
-            return null;
+            doc.setDocumentURI(location);
+            publication.saveOriginal(doc, local);
+            measure("save", location, startTime);
+            startTime = System.nanoTime();
+            PageOutline outline = publication.convertParsedPage(doc, local);
+            measure("convert", location, startTime);
+            addConvertedPage(local, location, outline);
+        } catch (Exception e) {
+            log.severe(Message.PAGE_NOT_EXTRACTED.with(location, e.getMessage()));
         }
     }
- 
-    private void writeContentDocument(Document doc, Path path) throws Exception {
-        this.htmlWriter.writeDocumentAt(path, doc);
-    }
- 
-    private void writeAllImages(Document doc) throws IOException {
-        URI base = URI.create(doc.getDocumentURI());
-        NodeList nodes = doc.getElementsByTagNameNS(HtmlSpec.NAMESPACE_URL, "img");
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Element image = (Element)nodes.item(i);
-            URI location = base.resolve(image.getAttribute("src"));
-            writeResource(location);
+    
+    private void addConvertedPage(Path local, String location, PageOutline outline) throws IOException {
+        Message.PAGE_WAS_SAVED.log(log, Level.INFO, local);
+        if (publication.getPageCount() == 0 && firstPageReported.compareAndSet(false, true)) {
+            log.info(Message.FIRST_PAGE_SAVED.with(ManagementFactory.getRuntimeMXBean().getUptime()));
         }
+        long startTime = System.nanoTime();
+        publication.addPage(local, location, outline, this::downloadResource);
+        measure("add", location, startTime);
     }
     
-    private void writeResource(URI location) throws IOException {
-        Path local = mapToLocalPath(location.toString());
-        if (local == null) {
-            return;
-        }
-        Path path = layoutPolicy.getPublicationContentDirectory().resolve(local);
-        if (!Files.exists(path)) {
-            downloadResource(location, path);
-        }
-        this.resources.add(local);
+    /**
+     * Copies the page on the JavaFX application thread, which is the only thread allowed to read the page,
+     * waiting for the copy on the current thread. The pages are therefore still added in order.
+     */
+    private static Document copyOnApplicationThread(Document page) throws Exception {
+        FutureTask<Document> task = new FutureTask<>(()->Documents.copy(page));
+        Platform.runLater(task);
+        return task.get();
     }
-  
+    
+    /**
+     * Serializes the live page as XML in a single call into the web engine.
+     * The document type is left out, so that the parser never fetches an external DTD.
+     */
+    private static String serialize(Document doc) {
+        JSObject window = (JSObject)((JSObject)doc).getMember("defaultView");
+        return (String)window.eval("new XMLSerializer().serializeToString(document.documentElement)");
+    }
+    
     private void downloadResource(URI remote, Path local) throws IOException {
-        log.info(Message.DOWNLOADING_RESOURCE.with(remote.toString()));
+        Message.DOWNLOADING_RESOURCE.log(log, Level.INFO, remote);
+        long startTime = System.nanoTime();
         Files.createDirectories(local.getParent());
         URLConnection conn = remote.toURL().openConnection();
-        String userAgent = getWebEngine().getUserAgent();
-        conn.setRequestProperty("User-Agent", userAgent);
+        conn.setRequestProperty("User-Agent", this.userAgent);
         try (InputStream in = conn.getInputStream()) {
             Files.copy(in, local, StandardCopyOption.REPLACE_EXISTING);
         }
-    }
-    
-    private void generatePublication() {
-        log.info(Message.GENERATING_PACKAGE_DOCUMENT.with(PACKAGE_DOCUMENT_NAME));
-        PackageDocumentBuilder builder = new PackageDocumentBuilder();
-        builder.pages(this.pages).resoures(this.resources);
-        buildPackage(builder);
-        Document doc = builder.build();
-
-        try {
-            Path path = layoutPolicy.getPublicationContentDirectory().resolve(PACKAGE_DOCUMENT_NAME);
-            this.xmlWriter.writeDocumentAt(path, doc);
-            writePublication(this.publicationName + ".epub");
-            log.info(Message.COMPLETED.toString());
-        } catch (Exception e) {
-            log.severe(e.getMessage());
-        }
-    }
-
-    protected void buildPackage(PackageDocumentBuilder builder) {
-        builder.title(metadata.getTitle())
-               .language(metadata.getLanguage())
-               .authors(metadata.getAuthors())
-               .rights(metadata.getRights());
-    }
-
-    private void writePublication(String fileName) throws IOException {
-        Path baseDir = layoutPolicy.getPublicationDirectory();
-        Path target = layoutPolicy.getPublicationFile();
-        log.info(Message.GENERATING_PUBLICATION.with(target.toString()));
-        PublicationWriter writer = new PublicationWriter(baseDir);
-        writer.writeTo(target);
-    }
-    
-    private void copyResource(String name, Path targetDir) throws IOException {
-        Files.createDirectories(targetDir);
-        Path target = targetDir.resolve(name);
-        try (InputStream in = getClass().getResourceAsStream(name)) {
-            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        long elapsed = measure("download", remote, startTime);
+        if (this.profile != null) {
+            this.profile.recordResource(remote.toString(), Files.size(local), elapsed);
         }
     }
     
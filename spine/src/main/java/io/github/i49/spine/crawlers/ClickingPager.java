@@ -23,7 +23,7 @@ import org.w3c.dom.events.EventTarget;
 import org.w3c.dom.events.UIEvent;
 import org.w3c.dom.views.DocumentView;
 
-import io.github.i49.spine.common.HtmlDocument;
+import io.github.i49.spine.common.Documents;
 
 /**
  *
@@ -38,19 +38,18 @@ public class ClickingPager implements Pager {
     }
     
     @Override
-    public boolean goNext(Document doc) {
-        HtmlDocument html = HtmlDocument.of(doc);
-        Element element = html.find(this.eventTarget);
-        if (element == null) {
-            return false;
-        }
+    public Element findNext(Document doc) {
+        return Documents.querySelector(doc, this.eventTarget);
+    }
+    
+    @Override
+    public void goNext(Document doc, Element element) {
         DocumentEvent docEvent = (DocumentEvent)doc;
         DocumentView docView = (DocumentView)doc;
         UIEvent event = (UIEvent)docEvent.createEvent("UIEvents");
         event.initUIEvent(EVENT_NAME, true, true, docView.getDefaultView(), 0);
         EventTarget target = (EventTarget)element;
         target.dispatchEvent(event);
-        return true;
     }
     
     public static Pager create(String eventTarget) {
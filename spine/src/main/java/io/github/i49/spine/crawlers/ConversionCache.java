@@ -0,0 +1,232 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import io.github.i49.spine.crawlers.CrawlerConfiguration.Converter;
+import io.github.i49.spine.message.Message;
+
+/**
+ * Content-addressed cache of converted pages.
+ *
+ * <p>Each entry is keyed by the digest of the page saved before conversion
+ * and the digest of the converter configuration,
+ * so a page is converted again only when either of them was changed.</p>
+ */
+class ConversionCache {
+
+    private static final Logger log = Logger.getLogger(ConversionCache.class.getName());
+
+    /*
+     * Version of the cache, which should be incremented
+     * whenever the output of the converters or the writers changes.
+     */
+    private static final String VERSION = "3";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Path directory;
+    private final String converterDigest;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    ConversionCache(Path directory, String converterDigest) {
+        this.directory = directory;
+        this.converterDigest = converterDigest;
+    }
+
+    int getHits() {
+        return hits.get();
+    }
+
+    int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Computes the key of the page.
+     *
+     * @param original the stream of the page saved before conversion.
+     * @return the key of the cache entry.
+     * @throws IOException if an error occurred while reading the page.
+     */
+    String keyOf(InputStream original) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(converterDigest.getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = original) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, len);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Writes the cached page to the target.
+     *
+     * @param key the key of the cache entry.
+     * @param target the path where the converted page will be written.
+     * @return the outline of the page, or {@code null} if the entry was not found or could not be read.
+     * @throws IOException if the unreadable entry could not be removed.
+     */
+    PageOutline get(String key, Path target) throws IOException {
+        Path entry = entryPath(key);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(entry))) {
+            PageOutline outline = PageOutline.readFrom(in);
+            Files.createDirectories(target.getParent());
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            hits.incrementAndGet();
+            return outline;
+        } catch (NoSuchFileException e) {
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException e) {
+            // the page is converted again and the entry is replaced.
+            log.warning(Message.CONVERSION_CACHE_ENTRY_DISCARDED.with(entry, e));
+            Files.deleteIfExists(entry);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the converted page.
+     *
+     * @param key the key of the cache entry.
+     * @param converted the path of the converted page.
+     * @param outline the outline of the page.
+     * @throws IOException if an error occurred while writing the entry.
+     */
+    void put(String key, Path converted, PageOutline outline) throws IOException {
+        Path entry = entryPath(key);
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(stream)) {
+                outline.writeTo(out);
+                Files.copy(converted, out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Computes the canonical digest of the converter configuration.
+     *
+     * @param converters the configuration of the converters.
+     * @return the digest of the configuration.
+     */
+    static String digestOf(List<Converter> converters) {
+        StringBuilder b = new StringBuilder(VERSION).append('\n');
+        for (Converter converter: converters) {
+            b.append(converter.getType()).append('\n');
+            for (Object command: converter.getCommands()) {
+                appendCanonical(command, b);
+                b.append('\n');
+            }
+            if (converter.getStylesheet() != null) {
+                appendStylesheet(converter.getStylesheet(), b);
+                appendCanonical(converter.getParameters(), b);
+                b.append('\n');
+            }
+        }
+        MessageDigest digest = newDigest();
+        return toHex(digest.digest(b.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Appends the digest of the stylesheet content,
+     * so that the cached pages are invalidated when the stylesheet is edited.
+     */
+    private static void appendStylesheet(String stylesheet, StringBuilder b) {
+        b.append(stylesheet).append('\n');
+        try {
+            b.append(toHex(newDigest().digest(Files.readAllBytes(Paths.get(stylesheet))))).append('\n');
+        } catch (IOException e) {
+            // The converter will fail to compile the missing stylesheet.
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendCanonical(Object value, StringBuilder b) {
+        if (value instanceof Map) {
+            Map<Object, Object> sorted = new TreeMap<>((x, y)->String.valueOf(x).compareTo(String.valueOf(y)));
+            sorted.putAll((Map<Object, Object>)value);
+            b.append('{');
+            for (Map.Entry<Object, Object> entry: sorted.entrySet()) {
+                appendCanonical(String.valueOf(entry.getKey()), b);
+                b.append(':');
+                appendCanonical(entry.getValue(), b);
+                b.append(',');
+            }
+            b.append('}');
+        } else if (value instanceof List) {
+            b.append('[');
+            for (Object item: (List<Object>)value) {
+                appendCanonical(item, b);
+                b.append(',');
+            }
+            b.append(']');
+        } else if (value instanceof String) {
+            b.append('"').append(((String)value).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else {
+            b.append(value);
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CrawlerException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder b = new StringBuilder(bytes.length * 2);
+        for (byte v: bytes) {
+            b.append(Character.forDigit((v >> 4) & 0xf, 16));
+            b.append(Character.forDigit(v & 0xf, 16));
+        }
+        return b.toString();
+    }
+}
@@ -20,5 +20,8 @@ package io.github.i49.spine.crawlers;
  *
  */
 public enum ConverterType {
-    PROCEDURAL
+    PROCEDURAL,
+    STREAMING,
+    XSLT,
+    SCRIPT
 }
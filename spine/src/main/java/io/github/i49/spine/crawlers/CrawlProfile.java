@@ -0,0 +1,391 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import io.github.i49.spine.common.JsonStrings;
+import io.github.i49.spine.converters.CommandStatistics;
+
+/**
+ * Performance profile of a crawl, written as JSON and HTML when the crawl finished.
+ *
+ * <p>The profile has the time spent by each page in each stage, the cumulative time 
+ * and match counts of the converter commands, the size and latency of the downloaded resources,
+ * and the total time of each stage. Stages running on different threads can overlap,
+ * so the total time of the stages may exceed the elapsed time of the crawl.</p>
+ */
+class CrawlProfile {
+
+    // the stages recorded for each page, in the order they are processed.
+    private static final List<String> PAGE_STAGES = Arrays.asList("load", "serialize", "save", "convert", "add");
+    // upper bounds of the buckets of the download latency in milliseconds.
+    private static final long[] LATENCY_BUCKETS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+    private static final int MAX_REPORTED_PAGES = 100;
+    private static final int MAX_REPORTED_RESOURCES = 20;
+
+    private final long startTime;
+    // time of each page stage in nanoseconds, or -1 if the stage was not recorded.
+    private final Map<String, long[]> pages = new LinkedHashMap<>();
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final List<Resource> resources = new ArrayList<>();
+    private final CommandStatistics commands = new CommandStatistics();
+
+    CrawlProfile() {
+        this.startTime = System.nanoTime();
+    }
+
+    CommandStatistics getCommandStatistics() {
+        return commands;
+    }
+
+    /**
+     * Records the time spent in the stage.
+     *
+     * @param stage the stage of the processing.
+     * @param url the URL of the page or the resource.
+     * @param nanos the time spent in nanoseconds.
+     */
+    synchronized void record(String stage, String url, long nanos) {
+        Stage total = stages.computeIfAbsent(stage, Stage::new);
+        total.count++;
+        total.nanos += nanos;
+        int index = PAGE_STAGES.indexOf(stage);
+        if (index >= 0) {
+            long[] times = pages.computeIfAbsent(url, key->{
+                long[] initial = new long[PAGE_STAGES.size()];
+                Arrays.fill(initial, -1);
+                return initial;
+            });
+            times[index] = (times[index] < 0) ? nanos : times[index] + nanos;
+        }
+    }
+
+    /**
+     * Records the resource downloaded.
+     *
+     * @param url the URL of the resource.
+     * @param bytes the size of the resource.
+     * @param nanos the time spent for downloading in nanoseconds.
+     */
+    synchronized void recordResource(String url, long bytes, long nanos) {
+        resources.add(new Resource(url, bytes, nanos));
+    }
+
+    /**
+     * Writes this profile.
+     *
+     * @param jsonFile the file to which the profile is written as JSON.
+     * @param reportFile the file to which the profile is written as HTML.
+     * @throws IOException if an I/O error occurred.
+     */
+    synchronized void writeTo(Path jsonFile, Path reportFile) throws IOException {
+        long elapsed = System.nanoTime() - startTime;
+        Files.createDirectories(jsonFile.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+            writer.write(toJson(elapsed));
+        }
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write(toHtml(elapsed));
+        }
+    }
+
+    private String toJson(long elapsed) {
+        StringBuilder b = new StringBuilder(1024 + pages.size() * 128);
+        b.append("{\n\"elapsedMillis\":").append(millis(elapsed));
+        
+        b.append(",\n\"stages\":[");
+        String separator = "\n";
+        for (Stage stage: stages.values()) {
+            b.append(separator).append("{\"stage\":");
+            JsonStrings.append(stage.name, b);
+            b.append(",\"count\":").append(stage.count).append(",\"millis\":").append(millis(stage.nanos)).append('}');
+            separator = ",\n";
+        }
+        
+        b.append("],\n\"pages\":[");
+        separator = "\n";
+        for (Map.Entry<String, long[]> page: pages.entrySet()) {
+            b.append(separator).append("{\"url\":");
+            JsonStrings.append(page.getKey(), b);
+            long[] times = page.getValue();
+            for (int i = 0; i < times.length; i++) {
+                if (times[i] >= 0) {
+                    b.append(",\"").append(PAGE_STAGES.get(i)).append("\":").append(millis(times[i]));
+                }
+            }
+            b.append('}');
+            separator = ",\n";
+        }
+        
+        b.append("],\n\"commands\":[");
+        separator = "\n";
+        for (CommandStatistics.Entry entry: commands.getEntries()) {
+            b.append(separator).append("{\"command\":");
+            JsonStrings.append(entry.getCommand(), b);
+            b.append(",\"executions\":").append(entry.getExecutions())
+             .append(",\"millis\":").append(millis(entry.getNanos()))
+             .append(",\"matches\":").append(entry.getMatches()).append('}');
+            separator = ",\n";
+        }
+        
+        b.append("],\n\"resources\":[");
+        separator = "\n";
+        for (Resource resource: largestResources(resources.size())) {
+            b.append(separator).append("{\"url\":");
+            JsonStrings.append(resource.url, b);
+            b.append(",\"bytes\":").append(resource.bytes).append(",\"millis\":").append(millis(resource.nanos)).append('}');
+            separator = ",\n";
+        }
+        
+        b.append("],\n\"downloads\":{\"count\":").append(resources.size());
+        long[] latencies = sortedLatencies();
+        if (latencies.length > 0) {
+            b.append(",\"minMillis\":").append(millis(latencies[0]))
+             .append(",\"p50Millis\":").append(millis(percentile(latencies, 50)))
+             .append(",\"p90Millis\":").append(millis(percentile(latencies, 90)))
+             .append(",\"p99Millis\":").append(millis(percentile(latencies, 99)))
+             .append(",\"maxMillis\":").append(millis(latencies[latencies.length - 1]))
+             .append(",\"meanMillis\":").append(millis(mean(latencies)));
+        }
+        b.append(",\"histogram\":[");
+        long[] counts = histogram(latencies);
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append("{\"upToMillis\":").append((i < LATENCY_BUCKETS.length) ? String.valueOf(LATENCY_BUCKETS[i]) : "null")
+             .append(",\"count\":").append(counts[i]).append('}');
+        }
+        b.append("]}\n}\n");
+        return b.toString();
+    }
+
+    private String toHtml(long elapsed) {
+        StringBuilder b = new StringBuilder(4096);
+        b.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\"/>\n<title>Crawl profile</title>\n");
+        b.append("<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:1em}")
+         .append("th,td{border:1px solid #ccc;padding:2px 6px}td.n{text-align:right}</style>\n");
+        b.append("</head>\n<body>\n<h1>Crawl profile</h1>\n");
+        b.append("<p>Elapsed: ").append(millis(elapsed)).append(" ms, pages: ").append(pages.size())
+         .append(", downloaded resources: ").append(resources.size()).append("</p>\n");
+
+        b.append("<h2>Stages</h2>\n<table>\n<tr><th>Stage</th><th>Count</th><th>Total (ms)</th><th>Mean (ms)</th></tr>\n");
+        for (Stage stage: stages.values()) {
+            b.append("<tr><td>").append(escape(stage.name)).append("</td>");
+            appendCell(stage.count, b);
+            appendCell(millis(stage.nanos), b);
+            appendCell(millis(stage.nanos / stage.count), b);
+            b.append("</tr>\n");
+        }
+        b.append("</table>\n");
+
+        b.append("<h2>Slowest pages</h2>\n<table>\n<tr><th>Page</th>");
+        for (String stage: PAGE_STAGES) {
+            b.append("<th>").append(stage).append(" (ms)</th>");
+        }
+        b.append("<th>Total (ms)</th></tr>\n");
+        List<Map.Entry<String, long[]>> slowest = new ArrayList<>(pages.entrySet());
+        slowest.sort(Comparator.comparingLong((Map.Entry<String, long[]> e)->total(e.getValue())).reversed());
+        for (Map.Entry<String, long[]> page: slowest.subList(0, Math.min(MAX_REPORTED_PAGES, slowest.size()))) {
+            b.append("<tr><td>").append(escape(page.getKey())).append("</td>");
+            for (long nanos: page.getValue()) {
+                appendCell((nanos >= 0) ? millis(nanos) : "", b);
+            }
+            appendCell(millis(total(page.getValue())), b);
+            b.append("</tr>\n");
+        }
+        b.append("</table>\n");
+
+        b.append("<h2>Commands</h2>\n<table>\n")
+         .append("<tr><th>Command</th><th>Executions</th><th>Total (ms)</th><th>Mean (ms)</th><th>Matches</th></tr>\n");
+        List<CommandStatistics.Entry> entries = commands.getEntries();
+        entries.sort(Comparator.comparingLong(CommandStatistics.Entry::getNanos).reversed());
+        for (CommandStatistics.Entry entry: entries) {
+            b.append("<tr><td>").append(escape(entry.getCommand())).append("</td>");
+            appendCell(entry.getExecutions(), b);
+            appendCell(millis(entry.getNanos()), b);
+            appendCell(millis(entry.getNanos() / entry.getExecutions()), b);
+            appendCell(entry.getMatches(), b);
+            b.append("</tr>\n");
+        }
+        b.append("</table>\n");
+
+        b.append("<h2>Largest resources</h2>\n<table>\n<tr><th>Resource</th><th>Bytes</th><th>Download (ms)</th></tr>\n");
+        for (Resource resource: largestResources(MAX_REPORTED_RESOURCES)) {
+            b.append("<tr><td>").append(escape(resource.url)).append("</td>");
+            appendCell(resource.bytes, b);
+            appendCell(millis(resource.nanos), b);
+            b.append("</tr>\n");
+        }
+        b.append("</table>\n");
+
+        b.append("<h2>Download latency</h2>\n");
+        long[] latencies = sortedLatencies();
+        if (latencies.length > 0) {
+            b.append("<table>\n<tr><th>Count</th><th>Min</th><th>50%</th><th>90%</th><th>99%</th><th>Max</th><th>Mean</th></tr>\n<tr>");
+            appendCell(latencies.length, b);
+            appendCell(millis(latencies[0]), b);
+            appendCell(millis(percentile(latencies, 50)), b);
+            appendCell(millis(percentile(latencies, 90)), b);
+            appendCell(millis(percentile(latencies, 99)), b);
+            appendCell(millis(latencies[latencies.length - 1]), b);
+            appendCell(millis(mean(latencies)), b);
+            b.append("</tr>\n</table>\n");
+            b.append("<table>\n<tr><th>Latency (ms)</th><th>Count</th></tr>\n");
+            long[] counts = histogram(latencies);
+            long lower = 0;
+            for (int i = 0; i < counts.length; i++) {
+                String range = (i < LATENCY_BUCKETS.length) ? lower + " - " + LATENCY_BUCKETS[i] : lower + " -";
+                b.append("<tr><td>").append(range).append("</td>");
+                appendCell(counts[i], b);
+                b.append("</tr>\n");
+                if (i < LATENCY_BUCKETS.length) {
+                    lower = LATENCY_BUCKETS[i];
+                }
+            }
+            b.append("</table>\n");
+        } else {
+            b.append("<p>No resources were downloaded.</p>\n");
+        }
+        b.append("</body>\n</html>\n");
+        return b.toString();
+    }
+
+    private List<Resource> largestResources(int limit) {
+        List<Resource> sorted = new ArrayList<>(resources);
+        sorted.sort(Comparator.comparingLong((Resource r)->r.bytes).reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    private long[] sortedLatencies() {
+        long[] latencies = new long[resources.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = resources.get(i).nanos;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    /**
+     * Counts the latencies in each bucket, the last of which has no upper bound.
+     */
+    private static long[] histogram(long[] latencies) {
+        long[] counts = new long[LATENCY_BUCKETS.length + 1];
+        for (long nanos: latencies) {
+            int i = 0;
+            while (i < LATENCY_BUCKETS.length && nanos > LATENCY_BUCKETS[i] * 1000000) {
+                i++;
+            }
+            counts[i]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the percentile of the sorted values by the nearest-rank method.
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int)Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long mean(long[] values) {
+        long sum = 0;
+        for (long value: values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static long total(long[] times) {
+        long sum = 0;
+        for (long nanos: times) {
+            if (nanos >= 0) {
+                sum += nanos;
+            }
+        }
+        return sum;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static void appendCell(Object value, StringBuilder b) {
+        b.append("<td class=\"n\">").append(value).append("</td>");
+    }
+
+    private static String escape(String value) {
+        StringBuilder b = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '&':
+                b.append("&amp;");
+                break;
+            case '<':
+                b.append("&lt;");
+                break;
+            case '>':
+                b.append("&gt;");
+                break;
+            case '"':
+                b.append("&quot;");
+                break;
+            default:
+                b.append(c);
+            }
+        }
+        return b.toString();
+    }
+
+    private static class Stage {
+
+        private final String name;
+        private long count;
+        private long nanos;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class Resource {
+
+        private final String url;
+        private final long bytes;
+        private final long nanos;
+
+        Resource(String url, long bytes, long nanos) {
+            this.url = url;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -35,5 +35,20 @@ public interface Crawler {
     void finish();
 
     void cancel();
+    
+    /**
+     * Returns the number of the pages added to the publication.
+     * 
+     * @return the number of the pages.
+     */
+    int getPageCount();
+    
+    /**
+     * Specifies the listener to be notified when this crawler has completed.
+     * By default the application exits when the crawler has completed.
+     * 
+     * @param listener the listener of this crawler.
+     */
+    void setListener(CrawlerListener listener);
 }
 
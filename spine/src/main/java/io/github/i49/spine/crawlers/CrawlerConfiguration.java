@@ -18,6 +18,7 @@ package io.github.i49.spine.crawlers;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration for crawlers.
@@ -30,15 +31,24 @@ public class CrawlerConfiguration {
     private String rootLocation;
     private String publicationName;
     private int maxPages;
+    private boolean conversionCache;
+    private boolean packedOriginals;
+    private boolean streamingArchive;
+    private boolean keepStagingFiles = true;
+    private boolean incrementalUpdate;
+    private ExtractionMode extraction;
+    private boolean profile;
     
     private Pager pager;
     private Metadata metadata;
     private Frames frames;
+    private Images images;
     private List<Converter> converters; 
     
     public CrawlerConfiguration() {
         this.type = CrawlerType.BASIC;
         this.maxPages = Integer.MAX_VALUE;
+        this.extraction = ExtractionMode.DOM;
         this.pager = new Pager();
         this.metadata = new Metadata();
         this.converters = new ArrayList<>();
@@ -95,6 +105,62 @@ public class CrawlerConfiguration {
         this.maxPages = maxPages;
     }
     
+    public boolean isConversionCache() {
+        return conversionCache;
+    }
+
+    public void setConversionCache(boolean conversionCache) {
+        this.conversionCache = conversionCache;
+    }
+    
+    public boolean isPackedOriginals() {
+        return packedOriginals;
+    }
+
+    public void setPackedOriginals(boolean packedOriginals) {
+        this.packedOriginals = packedOriginals;
+    }
+    
+    public boolean isStreamingArchive() {
+        return streamingArchive;
+    }
+
+    public void setStreamingArchive(boolean streamingArchive) {
+        this.streamingArchive = streamingArchive;
+    }
+    
+    public boolean isKeepStagingFiles() {
+        return keepStagingFiles;
+    }
+
+    public void setKeepStagingFiles(boolean keepStagingFiles) {
+        this.keepStagingFiles = keepStagingFiles;
+    }
+    
+    public boolean isIncrementalUpdate() {
+        return incrementalUpdate;
+    }
+
+    public void setIncrementalUpdate(boolean incrementalUpdate) {
+        this.incrementalUpdate = incrementalUpdate;
+    }
+    
+    public ExtractionMode getExtraction() {
+        return extraction;
+    }
+
+    public void setExtraction(ExtractionMode extraction) {
+        this.extraction = extraction;
+    }
+    
+    public boolean isProfile() {
+        return profile;
+    }
+
+    public void setProfile(boolean profile) {
+        this.profile = profile;
+    }
+    
     public Pager getPager() {
         return pager;
     }
@@ -119,6 +185,19 @@ public class CrawlerConfiguration {
         this.frames = frames;
     }
     
+    /**
+     * Returns the configuration of the image optimization.
+     * 
+     * @return the configuration, or {@code null} if the images should not be optimized.
+     */
+    public Images getImages() {
+        return images;
+    }
+    
+    public void setImages(Images images) {
+        this.images = images;
+    }
+    
     public List<Converter> getConverters() {
         return converters;
     }
@@ -129,10 +208,12 @@ public class CrawlerConfiguration {
     
     public static class Metadata {
         
+        private String identifier;
         private String title;
         private String language;
         private List<String> authors;
         private String rights;
+        private String modified;
         
         public Metadata() {
             this.title = "(untitled)";
@@ -140,6 +221,14 @@ public class CrawlerConfiguration {
             this.authors = new ArrayList<>();
         }
 
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        public void setIdentifier(String identifier) {
+            this.identifier = identifier;
+        }
+
         public String getTitle() {
             return title;
         }
@@ -171,6 +260,19 @@ public class CrawlerConfiguration {
         public void setRights(String rights) {
             this.rights = rights;
         }
+
+        /**
+         * Returns the last modified time of the publication in ISO 8601 format, such as {@code 2017-01-31T12:00:00Z}.
+         * 
+         * @return the last modified time, or {@code null} if the time should be derived from the crawled pages.
+         */
+        public String getModified() {
+            return modified;
+        }
+
+        public void setModified(String modified) {
+            this.modified = modified;
+        }
     }
     
     public static class Frames {
@@ -189,13 +291,77 @@ public class CrawlerConfiguration {
         }
     }
     
+    public static class Images {
+        
+        private int maxWidth;
+        private int maxHeight;
+        private float quality;
+        private int parallelism;
+        
+        public Images() {
+            this.quality = 0.85f;
+            this.parallelism = Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Returns the maximum width of the images in pixels.
+         * 
+         * @return the maximum width, or 0 if the width is not limited.
+         */
+        public int getMaxWidth() {
+            return maxWidth;
+        }
+
+        public void setMaxWidth(int maxWidth) {
+            this.maxWidth = maxWidth;
+        }
+
+        /**
+         * Returns the maximum height of the images in pixels.
+         * 
+         * @return the maximum height, or 0 if the height is not limited.
+         */
+        public int getMaxHeight() {
+            return maxHeight;
+        }
+
+        public void setMaxHeight(int maxHeight) {
+            this.maxHeight = maxHeight;
+        }
+
+        /**
+         * Returns the quality of the re-encoded JPEG images, from 0.0 to 1.0.
+         * 
+         * @return the quality of the JPEG images.
+         */
+        public float getQuality() {
+            return quality;
+        }
+
+        public void setQuality(float quality) {
+            this.quality = quality;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+    
     public static class Converter {
         
         private ConverterType type;
         private List<Object> commands;
+        private String stylesheet;
+        private Map<String, Object> parameters;
+        private String script;
         
         public Converter() {
             this.commands = Collections.emptyList();
+            this.parameters = Collections.emptyMap();
         }
 
         public ConverterType getType() {
@@ -215,6 +381,48 @@ public class CrawlerConfiguration {
                 this.commands = commands;
             }
         }
+        
+        /**
+         * Returns the path of the XSLT stylesheet used by the converter of {@link ConverterType#XSLT}.
+         * 
+         * @return the path of the stylesheet.
+         */
+        public String getStylesheet() {
+            return stylesheet;
+        }
+        
+        public void setStylesheet(String stylesheet) {
+            this.stylesheet = stylesheet;
+        }
+        
+        /**
+         * Returns the parameters passed to the XSLT stylesheet.
+         * 
+         * @return the parameters of the stylesheet.
+         */
+        public Map<String, Object> getParameters() {
+            return parameters;
+        }
+        
+        public void setParameters(Map<String, Object> parameters) {
+            if (parameters != null) {
+                this.parameters = parameters;
+            }
+        }
+        
+        /**
+         * Returns the script run on the live page by the converter of {@link ConverterType#SCRIPT}.
+         * The script must keep the elements which the pager needs to go to the next page.
+         * 
+         * @return the script to run.
+         */
+        public String getScript() {
+            return script;
+        }
+        
+        public void setScript(String script) {
+            this.script = script;
+        }
     }
     
     public static class Pager {
@@ -0,0 +1,31 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+/**
+ * Listener to be notified when a crawler has completed.
+ */
+@FunctionalInterface
+public interface CrawlerListener {
+
+    /**
+     * Called on the JavaFX application thread when the crawler was finished or cancelled.
+     * 
+     * @param crawler the crawler which has completed.
+     * @param succeeded {@code true} if the publication was generated successfully.
+     */
+    void crawlerCompleted(Crawler crawler, boolean succeeded);
+}
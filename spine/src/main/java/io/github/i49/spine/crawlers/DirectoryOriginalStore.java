@@ -0,0 +1,63 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Original store which saves each page as a separate file.
+ */
+class DirectoryOriginalStore implements OriginalStore {
+
+    private final Path directory;
+    
+    DirectoryOriginalStore(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public void save(Path local, byte[] content) throws IOException {
+        Path path = directory.resolve(local);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content);
+    }
+
+    @Override
+    public InputStream open(Path local) throws IOException {
+        return Files.newInputStream(directory.resolve(local));
+    }
+
+    @Override
+    public List<Path> list() throws IOException {
+        try (Stream<Path> stream = Files.walk(directory)) {
+            return stream.filter(Files::isRegularFile)
+                    .map(directory::relativize)
+                    .filter(path->!path.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,30 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+/**
+ * How the loaded page is extracted from the web engine.
+ */
+public enum ExtractionMode {
+    /**
+     * The page is read node by node from the DOM of the web engine.
+     */
+    DOM,
+    /**
+     * The page is serialized by a single script call and parsed on a worker thread.
+     */
+    SERIALIZED
+}
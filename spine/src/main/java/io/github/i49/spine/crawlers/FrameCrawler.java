@@ -18,17 +18,23 @@ package io.github.i49.spine.crawlers;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.events.Event;
+import org.w3c.dom.events.EventListener;
 import org.w3c.dom.events.EventTarget;
 import org.w3c.dom.html.HTMLIFrameElement;
 
-import io.github.i49.spine.common.HtmlDocument;
+import io.github.i49.spine.common.Documents;
 
 /**
  * Crawler for parsing web pages those have contents within iframes.
  */
 public class FrameCrawler extends AbstractCrawler {
 
+    private static final String LOAD_EVENT = "load";
+    
     private String contentFrame;
+    private final EventListener contentListener = this::handleContentLoaded;
+    // the content frame to which the listener was added.
+    private EventTarget listenedFrame;
     
     public FrameCrawler() {
         super();
@@ -44,11 +50,24 @@ public class FrameCrawler extends AbstractCrawler {
     protected void handleDocumentLoaded(Document doc) {
         Element iframe = getContentFrame(doc);
         if (iframe != null) {
-            ((EventTarget)iframe).addEventListener("load", this::handleContentLoaded, false);
+            detach();
+            this.listenedFrame = (EventTarget)iframe;
+            this.listenedFrame.addEventListener(LOAD_EVENT, this.contentListener, false);
+        }
+    }
+    
+    @Override
+    protected void detach() {
+        if (this.listenedFrame != null) {
+            this.listenedFrame.removeEventListener(LOAD_EVENT, this.contentListener, false);
+            this.listenedFrame = null;
         }
     }
 
     private void handleContentLoaded(Event event) {
+        if (isCompleted()) {
+            return;
+        }
         Document doc = getWebEngine().getDocument();
         Element iframe = getContentFrame(doc);
         if (iframe != null) {
@@ -57,9 +76,8 @@ public class FrameCrawler extends AbstractCrawler {
     }
     
     private Element getContentFrame(Document doc) {
-        HtmlDocument html = HtmlDocument.of(doc);
         if (this.contentFrame != null) {
-            return html.find(this.contentFrame);
+            return Documents.querySelector(doc, this.contentFrame);
         }
         return null;
     }
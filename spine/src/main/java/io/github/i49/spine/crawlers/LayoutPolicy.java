@@ -38,6 +38,38 @@ public class LayoutPolicy {
         return getPublicationDirectory().resolve(".original");
     }
     
+    public Path getPageListFile() {
+        return getOriginalDirectory().resolve(".pages");
+    }
+    
+    public Path getOriginalPackFile() {
+        return getOriginalDirectory().resolve("pages.pack");
+    }
+    
+    public Path getOriginalIndexFile() {
+        return getOriginalDirectory().resolve("pages.idx");
+    }
+    
+    public Path getFingerprintFile() {
+        return getPublicationDirectory().resolve(".fingerprint");
+    }
+    
+    public Path getCacheDirectory() {
+        return getPublicationDirectory().resolve(".cache");
+    }
+    
+    public Path getProfileDirectory() {
+        return getPublicationDirectory().resolve(".profile");
+    }
+    
+    public Path getProfileFile() {
+        return getProfileDirectory().resolve("profile.json");
+    }
+    
+    public Path getProfileReportFile() {
+        return getProfileDirectory().resolve("profile.html");
+    }
+    
     public Path getPublicationDirectory() {
         return basePath.resolve(this.publicationName);
     }
@@ -53,4 +85,8 @@ public class LayoutPolicy {
     public Path getPublicationFile() {
         return getBasePath().resolve(publicationName + ".epub");
     }
+    
+    public Path getPartialPublicationFile() {
+        return getBasePath().resolve(publicationName + ".epub.part");
+    }
 }
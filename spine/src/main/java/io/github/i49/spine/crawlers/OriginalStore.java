@@ -0,0 +1,72 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Store of the pages saved as they were captured before conversion.
+ * 
+ * <p>Pages can be read and written concurrently by multiple threads.
+ * Every saved page can be read by its local path.</p>
+ */
+interface OriginalStore extends Closeable {
+
+    /**
+     * Saves the page.
+     * 
+     * @param local the local path of the page.
+     * @param content the content of the page.
+     * @throws IOException if an error occurred while writing the page.
+     */
+    void save(Path local, byte[] content) throws IOException;
+    
+    /**
+     * Opens the saved page.
+     * 
+     * @param local the local path of the page.
+     * @return the stream of the page content.
+     * @throws IOException if the page was not found or an error occurred while reading the page.
+     */
+    InputStream open(Path local) throws IOException;
+    
+    /**
+     * Lists all pages in this store.
+     * 
+     * @return the local paths of the saved pages.
+     * @throws IOException if an error occurred while reading the store.
+     */
+    List<Path> list() throws IOException;
+    
+    /**
+     * Creates a store in the directory of the original pages.
+     * 
+     * @param layoutPolicy the layout of the publication.
+     * @param packed {@code true} if the pages should be packed into a single file.
+     * @return created store.
+     */
+    static OriginalStore create(LayoutPolicy layoutPolicy, boolean packed) {
+        if (packed) {
+            return new PackedOriginalStore(layoutPolicy.getOriginalPackFile(), layoutPolicy.getOriginalIndexFile());
+        } else {
+            return new DirectoryOriginalStore(layoutPolicy.getOriginalDirectory());
+        }
+    }
+}
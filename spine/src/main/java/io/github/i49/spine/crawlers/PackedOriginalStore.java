@@ -0,0 +1,311 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Original store which appends all pages to a single pack file.
+ * 
+ * <p>Each record in the pack consists of the local path of the page,
+ * the length and the checksum of the page, and the deflated content.
+ * The pack is written sequentially, and the index which maps the local paths 
+ * to the offsets of the records is written when the store is closed.
+ * If the index is missing or stale, for example after the crawler was interrupted,
+ * it is rebuilt by scanning the records in the pack.</p>
+ */
+class PackedOriginalStore implements OriginalStore {
+
+    private static final byte[] MAGIC = "SPINEPK1".getBytes(StandardCharsets.US_ASCII);
+    
+    private final Path packFile;
+    private final Path indexFile;
+    // offsets of the records, ordered by the first time each page was saved.
+    private final Map<String, Long> index;
+    private FileChannel channel;
+    private boolean writable;
+    
+    PackedOriginalStore(Path packFile, Path indexFile) {
+        this.packFile = packFile;
+        this.indexFile = indexFile;
+        this.index = new LinkedHashMap<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>The pack written by the previous crawl is discarded by the first page saved.</p>
+     */
+    @Override
+    public void save(Path local, byte[] content) throws IOException {
+        byte[] name = keyOf(local).getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = deflate(content);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        
+        ByteBuffer header = ByteBuffer.allocate(16 + name.length);
+        header.putInt(name.length).put(name);
+        header.putInt(content.length).putInt(deflated.length).putInt((int)crc.getValue());
+        header.flip();
+        ByteBuffer body = ByteBuffer.wrap(deflated);
+        
+        synchronized (this) {
+            openForWrite();
+            long offset = channel.size();
+            channel.position(offset);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] { header, body });
+            }
+            index.put(keyOf(local), offset);
+        }
+    }
+
+    @Override
+    public InputStream open(Path local) throws IOException {
+        long offset;
+        FileChannel channel;
+        synchronized (this) {
+            openForRead();
+            Long found = index.get(keyOf(local));
+            if (found == null) {
+                throw new NoSuchFileException(local.toString());
+            }
+            offset = found;
+            channel = this.channel;
+        }
+        return new ByteArrayInputStream(readRecord(channel, offset));
+    }
+
+    @Override
+    public synchronized List<Path> list() throws IOException {
+        openForRead();
+        List<Path> pages = new ArrayList<>(index.size());
+        for (String key: index.keySet()) {
+            pages.add(Paths.get(key));
+        }
+        return pages;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (writable) {
+                channel.force(false);
+                writeIndex(channel.size());
+            }
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    private void openForWrite() throws IOException {
+        if (writable) {
+            return;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.createDirectories(packFile.getParent());
+        Files.deleteIfExists(indexFile);
+        channel = FileChannel.open(packFile, 
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, 
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.write(ByteBuffer.wrap(MAGIC));
+        index.clear();
+        writable = true;
+    }
+    
+    private void openForRead() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        channel = FileChannel.open(packFile, StandardOpenOption.READ);
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        readFully(channel, magic, 0);
+        if (!Arrays.equals(magic.array(), MAGIC)) {
+            channel.close();
+            channel = null;
+            throw new IOException("Not a pack of original pages: " + packFile);
+        }
+        if (!readIndex(channel.size())) {
+            scanRecords();
+        }
+    }
+    
+    /**
+     * Reads the index written when the pack was closed.
+     * 
+     * @param packSize the current size of the pack.
+     * @return {@code true} if the index was read, {@code false} if the index was missing or stale.
+     */
+    private boolean readIndex(long packSize) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(Long.toString(packSize))) {
+            return false;
+        }
+        index.clear();
+        for (String line: lines.subList(1, lines.size())) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+                index.put(line.substring(tab + 1), Long.parseLong(line.substring(0, tab)));
+            }
+        }
+        return true;
+    }
+    
+    private void writeIndex(long packSize) throws IOException {
+        List<String> lines = new ArrayList<>(index.size() + 1);
+        lines.add(Long.toString(packSize));
+        for (Map.Entry<String, Long> entry: index.entrySet()) {
+            lines.add(entry.getValue() + "\t" + entry.getKey());
+        }
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rebuilds the index from the records in the pack.
+     * The incomplete record at the end of the pack is ignored.
+     */
+    private void scanRecords() throws IOException {
+        index.clear();
+        long size = channel.size();
+        long offset = MAGIC.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        while (offset + 4 <= size) {
+            buffer.clear();
+            readFully(channel, buffer, offset);
+            int nameLength = buffer.getInt(0);
+            long next = offset + 16 + nameLength;
+            if (nameLength < 0 || next > size) {
+                break;
+            }
+            ByteBuffer header = ByteBuffer.allocate(nameLength + 12);
+            readFully(channel, header, offset + 4);
+            int storedLength = header.getInt(nameLength + 4);
+            next += storedLength;
+            if (storedLength < 0 || next > size) {
+                break;
+            }
+            index.put(new String(header.array(), 0, nameLength, StandardCharsets.UTF_8), offset);
+            offset = next;
+        }
+    }
+    
+    private byte[] readRecord(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        readFully(channel, buffer, offset);
+        int nameLength = buffer.getInt(0);
+        ByteBuffer header = ByteBuffer.allocate(12);
+        readFully(channel, header, offset + 4 + nameLength);
+        int rawLength = header.getInt(0);
+        int storedLength = header.getInt(4);
+        int checksum = header.getInt(8);
+        ByteBuffer stored = ByteBuffer.allocate(storedLength);
+        readFully(channel, stored, offset + 16 + nameLength);
+        byte[] content = inflate(stored.array(), rawLength);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if ((int)crc.getValue() != checksum) {
+            throw new IOException("Corrupted record at offset " + offset + " in " + packFile);
+        }
+        return content;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+    
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buffer);
+                out.write(buffer, 0, len);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(byte[] stored, int rawLength) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored);
+            byte[] content = new byte[rawLength];
+            int total = 0;
+            while (total < rawLength) {
+                int len = inflater.inflate(content, total, rawLength - total);
+                if (len == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                total += len;
+            }
+            if (total != rawLength) {
+                throw new EOFException();
+            }
+            return content;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    private static String keyOf(Path local) {
+        return local.toString().replace('\\', '/');
+    }
+}
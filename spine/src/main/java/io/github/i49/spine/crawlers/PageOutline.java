@@ -0,0 +1,241 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import io.github.i49.spine.common.HtmlSpec;
+import io.github.i49.spine.common.NavigationDocumentBuilder;
+import io.github.i49.spine.converters.StreamElement;
+import io.github.i49.spine.converters.StreamVisitor;
+
+/**
+ * Outline of a converted page, which is collected while the page is converted.
+ * 
+ * <p>The outline keeps the sources of the images to be added to the publication
+ * and the headings to be listed in the navigation document,
+ * so the converted page need not be read again.</p>
+ */
+class PageOutline implements StreamVisitor {
+
+    private final List<String> images;
+    private final List<Heading> headings;
+    private String title;
+    
+    // the text of the heading or the title being collected.
+    private StringBuilder text;
+    private int textLevel;
+    private String textId;
+    private int depth;
+    
+    /**
+     * Heading found in the page.
+     */
+    static class Heading {
+        
+        private final int level;
+        private final String id;
+        private final String text;
+        
+        Heading(int level, String id, String text) {
+            this.level = level;
+            this.id = id;
+            this.text = text;
+        }
+    }
+    
+    PageOutline() {
+        this.images = new ArrayList<>();
+        this.headings = new ArrayList<>();
+    }
+    
+    /**
+     * Collects the outline of the converted document.
+     * Elements without namespace, which converters may have created, are treated as HTML elements.
+     * 
+     * @param doc the converted document.
+     * @return the outline of the document.
+     */
+    static PageOutline of(Document doc) {
+        PageOutline outline = new PageOutline();
+        NodeList nodes = doc.getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element)nodes.item(i);
+            String namespace = element.getNamespaceURI();
+            if (namespace != null && !namespace.equals(HtmlSpec.NAMESPACE_URL)) {
+                continue;
+            }
+            String name = (element.getLocalName() != null) ? element.getLocalName() : element.getTagName();
+            if ("img".equals(name)) {
+                outline.images.add(element.getAttribute("src"));
+            } else if ("title".equals(name)) {
+                if (outline.title == null) {
+                    outline.title = normalize(element.getTextContent());
+                }
+            } else {
+                int level = headingLevel(name);
+                if (level > 0) {
+                    outline.addHeading(level, element.getAttribute("id"), normalize(element.getTextContent()));
+                }
+            }
+        }
+        return outline;
+    }
+    
+    /**
+     * Returns the sources of all images found in the page.
+     * 
+     * @return the sources of the images.
+     */
+    List<String> getImages() {
+        return Collections.unmodifiableList(images);
+    }
+    
+    /**
+     * Adds the headings of the page to the navigation document.
+     * The page is listed by its title if it has no headings.
+     * 
+     * @param builder the builder of the navigation document.
+     * @param page the path of the page, relative to the navigation document.
+     */
+    void addTo(NavigationDocumentBuilder builder, Path page) {
+        if (headings.isEmpty()) {
+            String label = (title != null && !title.isEmpty()) ? title : page.getFileName().toString();
+            builder.entry(1, page, null, label);
+            return;
+        }
+        for (Heading heading: headings) {
+            builder.entry(heading.level, page, heading.id, heading.text);
+        }
+    }
+    
+    @Override
+    public void visitElement(StreamElement element) {
+        if (this.text != null) {
+            depth++;
+        }
+        String name = element.getLocalName();
+        if ("img".equals(name)) {
+            String src = element.getAttribute("src");
+            images.add((src != null) ? src : "");
+        }
+        if (this.text != null) {
+            return;
+        }
+        int level = headingLevel(name);
+        if (level > 0 || ("title".equals(name) && this.title == null)) {
+            this.text = new StringBuilder();
+            this.textLevel = level;
+            this.textId = element.getAttribute("id");
+            this.depth = 1;
+        }
+    }
+
+    @Override
+    public void visitText(char[] text, int start, int length) {
+        if (this.text != null) {
+            this.text.append(text, start, length);
+        }
+    }
+
+    @Override
+    public void visitEndElement() {
+        if (this.text == null || --depth > 0) {
+            return;
+        }
+        String value = normalize(this.text.toString());
+        if (textLevel > 0) {
+            addHeading(textLevel, textId, value);
+        } else {
+            this.title = value;
+        }
+        this.text = null;
+    }
+    
+    /**
+     * Writes the outline to the cache entry.
+     * 
+     * @param out the output of the cache entry.
+     * @throws IOException if an I/O error occurred.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(images.size());
+        for (String image: images) {
+            out.writeUTF(image);
+        }
+        out.writeUTF((title != null) ? title : "");
+        out.writeInt(headings.size());
+        for (Heading heading: headings) {
+            out.writeByte(heading.level);
+            out.writeUTF((heading.id != null) ? heading.id : "");
+            out.writeUTF(heading.text);
+        }
+    }
+    
+    /**
+     * Reads the outline from the cache entry.
+     * 
+     * @param in the input of the cache entry.
+     * @return the outline read.
+     * @throws IOException if an I/O error occurred.
+     */
+    static PageOutline readFrom(DataInput in) throws IOException {
+        PageOutline outline = new PageOutline();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            outline.images.add(in.readUTF());
+        }
+        outline.title = in.readUTF();
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int level = in.readByte();
+            String id = in.readUTF();
+            outline.addHeading(level, id, in.readUTF());
+        }
+        return outline;
+    }
+    
+    private void addHeading(int level, String id, String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        headings.add(new Heading(level, (id != null && !id.isEmpty()) ? id : null, text));
+    }
+    
+    private static int headingLevel(String name) {
+        if (name != null && name.length() == 2 && name.charAt(0) == 'h') {
+            char c = name.charAt(1);
+            if (c >= '1' && c <= '6') {
+                return c - '0';
+            }
+        }
+        return 0;
+    }
+    
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+}
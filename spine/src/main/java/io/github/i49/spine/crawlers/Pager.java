@@ -17,11 +17,30 @@
 package io.github.i49.spine.crawlers;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 /**
+ * Navigator which goes from the page to the next page.
  *
+ * <p>The scripts of the converters run on the live page and may remove the element leading to the next page,
+ * so the element is found before the scripts run and used after the page was added.</p>
  */
 public interface Pager {
     
-    boolean goNext(Document doc);
+    /**
+     * Finds the element which leads to the next page.
+     * 
+     * @param doc the page displayed in the web engine.
+     * @return the element found, or {@code null} if the page has no next page.
+     */
+    Element findNext(Document doc);
+    
+    /**
+     * Goes to the next page through the element found by {@link #findNext(Document)}.
+     * The element may have been removed from the page since then.
+     * 
+     * @param doc the page displayed in the web engine.
+     * @param target the element found before.
+     */
+    void goNext(Document doc, Element target);
 }
@@ -0,0 +1,776 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.w3c.dom.Document;
+
+import io.github.i49.spine.common.DocumentWriter;
+import io.github.i49.spine.common.Documents;
+import io.github.i49.spine.common.HtmlDocumentWriter;
+import io.github.i49.spine.common.ImageOptimizer;
+import io.github.i49.spine.common.MediaTypes;
+import io.github.i49.spine.common.NavigationDocumentBuilder;
+import io.github.i49.spine.common.PackageDocumentBuilder;
+import io.github.i49.spine.common.PublicationWriter;
+import io.github.i49.spine.common.StreamingPublicationWriter;
+import io.github.i49.spine.converters.CommandStatistics;
+import io.github.i49.spine.converters.DocumentConverter;
+import io.github.i49.spine.converters.ScriptDocumentConverter;
+import io.github.i49.spine.converters.StreamingDocumentConverter;
+import io.github.i49.spine.crawlers.CrawlerConfiguration.Metadata;
+import io.github.i49.spine.message.Message;
+
+/**
+ * Publication assembled from the pages and resources found by crawlers.
+ *
+ * <p>Pages can be converted concurrently by multiple threads,
+ * but must be added to the publication in their reading order.</p>
+ */
+class Publication {
+
+    private static final Logger log = Logger.getLogger(Publication.class.getName());
+    private static final String PACKAGE_DOCUMENT_NAME = "package.opf";
+    private static final String NAVIGATION_DOCUMENT_NAME = "nav.xhtml";
+    private static final String INDEX_NAME = "index.html";
+
+    private final String rootLocation;
+    private final String publicationName;
+    private final Metadata metadata;
+    private final String identifier;
+    // -1 until the time is derived from the saved pages.
+    private long lastModified;
+    private final LayoutPolicy layoutPolicy;
+
+    private final List<DocumentConverter> converters;
+    private final List<ScriptDocumentConverter> scripts;
+    private final List<CrawlerConfiguration.Converter> converterConfigurations;
+    private final boolean cacheEnabled;
+    private final OriginalStore originals;
+    private final boolean streamingArchive;
+    private final boolean keepStagingFiles;
+    private final boolean incrementalUpdate;
+    private StreamingPublicationWriter archive;
+    private StreamingDocumentConverter streamingConverter;
+    private ConversionCache cache;
+    private CommandStatistics commandStatistics;
+
+    private final List<Path> pages;
+    // outlines of the pages, in the same order as the pages.
+    private final List<PageOutline> outlines;
+    // media types of the resources, detected when each resource was added.
+    private final Map<Path, String> resources;
+    
+    private final ImageOptimizer imageOptimizer;
+    private final ExecutorService imageExecutor;
+    // images being optimized, in the order they were added.
+    private final Map<Path, Future<ImageOptimizer.Result>> pendingImages;
+    private int optimizedImages;
+    private long savedImageBytes;
+
+    private final DocumentWriter htmlWriter;
+
+    /**
+     * Loader of resources not found in the publication.
+     */
+    @FunctionalInterface
+    interface ResourceLoader {
+
+        void load(URI remote, Path local) throws IOException;
+    }
+
+    Publication(CrawlerConfiguration conf, Path workingDirectory) throws Exception {
+        this.rootLocation = conf.getRootLocation();
+        this.publicationName = conf.getPublicationName();
+        this.metadata = conf.getMetadata();
+        this.identifier = identifierOf(conf);
+        this.lastModified = getBuildTime(this.metadata);
+        this.layoutPolicy = new LayoutPolicy(workingDirectory, this.publicationName);
+        this.converters = new ArrayList<>();
+        this.scripts = new ArrayList<>();
+        this.converterConfigurations = conf.getConverters();
+        this.cacheEnabled = conf.isConversionCache();
+        this.originals = OriginalStore.create(this.layoutPolicy, conf.isPackedOriginals());
+        this.streamingArchive = conf.isStreamingArchive();
+        this.keepStagingFiles = conf.isKeepStagingFiles();
+        this.incrementalUpdate = conf.isIncrementalUpdate() && !this.streamingArchive;
+        // the number of the pages is read by the crawler while the worker is adding pages.
+        this.pages = Collections.synchronizedList(new ArrayList<>());
+        this.outlines = new ArrayList<>();
+        this.resources = new LinkedHashMap<>();
+        CrawlerConfiguration.Images images = conf.getImages();
+        if (images != null) {
+            this.imageOptimizer = new ImageOptimizer(images.getMaxWidth(), images.getMaxHeight(), images.getQuality());
+            this.imageExecutor = Executors.newFixedThreadPool(Math.max(1, images.getParallelism()), task->{
+                Thread thread = new Thread(task, "image-optimizer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.imageOptimizer = null;
+            this.imageExecutor = null;
+        }
+        this.pendingImages = new LinkedHashMap<>();
+        this.htmlWriter = new HtmlDocumentWriter();
+    }
+
+    LayoutPolicy getLayoutPolicy() {
+        return layoutPolicy;
+    }
+
+    void addConverter(DocumentConverter converter) {
+        if (converter instanceof ScriptDocumentConverter) {
+            // Scripts are applied to the live page, not to the captured copy.
+            this.scripts.add((ScriptDocumentConverter)converter);
+        } else {
+            this.converters.add(converter);
+        }
+    }
+
+    /**
+     * Runs the scripts of the converters on the live page before the page is captured.
+     * The page is modified in place, so the crawler finds the element leading to the next page beforehand.
+     *
+     * @param doc the live page owned by the web engine.
+     */
+    void runScripts(Document doc) {
+        for (ScriptDocumentConverter script: this.scripts) {
+            script.execute(doc);
+        }
+    }
+
+    /**
+     * Sets the statistics of the commands executed by the converters.
+     * 
+     * @param statistics the statistics, or {@code null} not to record.
+     */
+    void setCommandStatistics(CommandStatistics statistics) {
+        this.commandStatistics = statistics;
+    }
+
+    /**
+     * Prepares the converters before the first page is converted.
+     */
+    void prepareConverters() {
+        this.streamingConverter = StreamingDocumentConverter.combine(this.converters);
+        if (this.commandStatistics != null) {
+            this.converters.forEach(c->c.setStatistics(this.commandStatistics));
+            if (this.streamingConverter != null) {
+                this.streamingConverter.setStatistics(this.commandStatistics);
+            }
+        }
+        if (this.cacheEnabled) {
+            String digest = ConversionCache.digestOf(this.converterConfigurations);
+            this.cache = new ConversionCache(layoutPolicy.getCacheDirectory(), digest);
+        }
+    }
+
+    int getPageCount() {
+        return pages.size();
+    }
+
+    void initializeDirectories() throws IOException {
+        Files.createDirectories(layoutPolicy.getPublicationMetaDirectory());
+        copyResource("mimetype", layoutPolicy.getPublicationDirectory());
+        copyResource("container.xml", layoutPolicy.getPublicationMetaDirectory());
+        if (this.streamingArchive) {
+            // entries are written before any page was saved.
+            if (this.lastModified < 0) {
+                this.lastModified = System.currentTimeMillis();
+            }
+            Path partial = layoutPolicy.getPartialPublicationFile();
+            this.archive = new StreamingPublicationWriter(layoutPolicy.getPublicationFile(), partial, this.lastModified);
+            archiveFile(layoutPolicy.getPublicationMetaDirectory().resolve("container.xml"), true);
+        }
+    }
+
+    /**
+     * Maps a remote location to a path on the local filesystem.
+     *
+     * @param location the remote location.
+     * @return the path on the local filesystem. can be {@code null}.
+     */
+    Path mapToLocalPath(String location) {
+        if  (location.startsWith(this.rootLocation)) {
+            String local = location.substring(this.rootLocation.length());
+            if (local.isEmpty() || local.endsWith("/")) {
+                local = local.concat(INDEX_NAME);
+            }
+            return Paths.get(local);
+        } else {
+            log.warning(Message.PAGE_WAS_SKIPPED.with(location));
+            return null;
+        }
+    }
+
+    /**
+     * Maps a path on the local filesystem to the remote location.
+     *
+     * @param local the path on the local filesystem.
+     * @return the remote location.
+     */
+    String mapToRemoteLocation(Path local) {
+        return this.rootLocation + toSlashSeparated(local);
+    }
+
+    /**
+     * Saves the page as it was captured before conversion.
+     *
+     * @param doc the captured page.
+     * @param local the local path of the page.
+     * @throws Exception if an error occurred while writing the page.
+     */
+    void saveOriginal(Document doc, Path local) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        this.htmlWriter.writeDocumentTo(stream, doc);
+        this.originals.save(local, stream.toByteArray());
+    }
+
+    /**
+     * Opens the page saved before conversion.
+     *
+     * @param local the local path of the page.
+     * @return the stream of the saved page.
+     * @throws IOException if the page was not found or an error occurred while reading the page.
+     */
+    InputStream openOriginal(Path local) throws IOException {
+        return this.originals.open(local);
+    }
+
+    /**
+     * Lists all pages saved before conversion, in their reading order.
+     *
+     * @return the local paths of the saved pages.
+     * @throws IOException if an error occurred while reading the saved pages.
+     */
+    List<Path> listOriginals() throws IOException {
+        Path list = layoutPolicy.getPageListFile();
+        if (Files.exists(list)) {
+            return Files.readAllLines(list, StandardCharsets.UTF_8).stream()
+                    .filter(line->!line.isEmpty())
+                    .map(Paths::get)
+                    .collect(Collectors.toList());
+        }
+        return this.originals.list();
+    }
+
+    /**
+     * Converts the captured page and writes it into the publication.
+     *
+     * @param doc the captured page, which will not be modified.
+     * @param local the local path of the page.
+     * @return the outline of the converted page.
+     * @throws Exception if an error occurred while converting the page.
+     */
+    PageOutline convertPage(Document doc, Path local) throws Exception {
+        return convertWithCache(local, ()->{
+            if (this.streamingConverter != null) {
+                return convertStoredPage(local);
+            }
+            return convertAndWrite(Documents.copy(doc), local);
+        });
+    }
+
+    /**
+     * Converts the page parsed from the serialized page and writes it into the publication.
+     *
+     * @param doc the parsed page, which may be modified by the converters.
+     * @param local the local path of the page.
+     * @return the outline of the converted page.
+     * @throws Exception if an error occurred while converting the page.
+     */
+    PageOutline convertParsedPage(Document doc, Path local) throws Exception {
+        return convertWithCache(local, ()->{
+            if (this.streamingConverter != null) {
+                return convertStoredPage(local);
+            }
+            return convertAndWrite(doc, local);
+        });
+    }
+
+    /**
+     * Converts the page saved before conversion and writes it into the publication.
+     *
+     * @param local the local path of the page.
+     * @return the outline of the converted page.
+     * @throws Exception if an error occurred while converting the page.
+     */
+    PageOutline convertOriginal(Path local) throws Exception {
+        return convertWithCache(local, ()->{
+            if (this.streamingConverter != null) {
+                return convertStoredPage(local);
+            }
+            Document doc;
+            try (InputStream in = openOriginal(local)) {
+                doc = Documents.parse(in);
+            }
+            doc.setDocumentURI(mapToRemoteLocation(local));
+            return convertAndWrite(doc, local);
+        });
+    }
+
+    /**
+     * Converts the page only if the converted page was not found in the cache.
+     *
+     * @param local the local path of the page, which was already saved before conversion.
+     * @param conversion the conversion of the page.
+     * @return the outline of the converted page.
+     * @throws Exception if an error occurred while converting the page.
+     */
+    private PageOutline convertWithCache(Path local, Callable<PageOutline> conversion) throws Exception {
+        if (this.cache == null) {
+            return conversion.call();
+        }
+        String key = this.cache.keyOf(openOriginal(local));
+        Path target = layoutPolicy.getPublicationContentDirectory().resolve(local);
+        PageOutline outline = this.cache.get(key, target);
+        if (outline == null) {
+            outline = conversion.call();
+            this.cache.put(key, target, outline);
+        }
+        return outline;
+    }
+
+    private PageOutline convertAndWrite(Document doc, Path local) throws Exception {
+        for (DocumentConverter converter: this.converters) {
+            doc = converter.convert(doc);
+        }
+        writeContentDocument(doc, layoutPolicy.getPublicationContentDirectory().resolve(local));
+        return PageOutline.of(doc);
+    }
+
+    /**
+     * Converts the stored page without loading it into memory.
+     *
+     * @param local the local path of the page.
+     * @return the outline of the converted page.
+     * @throws Exception if an error occurred while converting the page.
+     */
+    private PageOutline convertStoredPage(Path local) throws Exception {
+        Path target = layoutPolicy.getPublicationContentDirectory().resolve(local);
+        PageOutline outline = new PageOutline();
+        Files.createDirectories(target.getParent());
+        try (InputStream in = openOriginal(local); OutputStream out = Files.newOutputStream(target)) {
+            this.streamingConverter.convert(in, out, outline);
+        }
+        return outline;
+    }
+
+    /**
+     * Adds the converted page to the publication.
+     *
+     * @param local the local path of the page.
+     * @param location the remote location of the page.
+     * @param outline the outline of the converted page.
+     * @param loader the loader of the images not found in the publication.
+     * @throws IOException if an error occurred while loading the images.
+     */
+    void addPage(Path local, String location, PageOutline outline, ResourceLoader loader) throws IOException {
+        URI base = URI.create(location);
+        for (String image: outline.getImages()) {
+            addResource(base.resolve(image), loader);
+        }
+        this.pages.add(local);
+        this.outlines.add(outline);
+        archiveFile(layoutPolicy.getPublicationContentDirectory().resolve(local), this.keepStagingFiles);
+        completeImages(false);
+    }
+
+    private void addResource(URI location, ResourceLoader loader) throws IOException {
+        Path local = mapToLocalPath(location.toString());
+        if (local == null || this.resources.containsKey(local)) {
+            return;
+        }
+        Path path = layoutPolicy.getPublicationContentDirectory().resolve(local);
+        boolean downloaded = false;
+        if (!Files.exists(path)) {
+            loader.load(location, path);
+            if (!Files.exists(path)) {
+                return;
+            }
+            downloaded = true;
+        }
+        String mediaType = MediaTypes.detect(path);
+        this.resources.put(local, mediaType);
+        // images kept from the previous crawl were already optimized.
+        if (downloaded && this.imageOptimizer != null && ImageOptimizer.isOptimizable(mediaType)) {
+            this.pendingImages.put(local, this.imageExecutor.submit(()->this.imageOptimizer.optimize(path)));
+            return;
+        }
+        archiveFile(path, this.keepStagingFiles);
+    }
+    
+    /**
+     * Completes the images whose optimization has finished, in the order they were added.
+     * 
+     * @param wait {@code true} if all images should be completed, waiting for their optimization.
+     * @throws IOException if an error occurred while archiving the images.
+     */
+    private void completeImages(boolean wait) throws IOException {
+        Iterator<Map.Entry<Path, Future<ImageOptimizer.Result>>> it = this.pendingImages.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Future<ImageOptimizer.Result>> entry = it.next();
+            Future<ImageOptimizer.Result> future = entry.getValue();
+            if (!wait && !future.isDone()) {
+                break;
+            }
+            Path local = entry.getKey();
+            try {
+                ImageOptimizer.Result result = future.get();
+                this.resources.put(local, result.getMediaType());
+                log.info(Message.IMAGE_WAS_OPTIMIZED.with(local, 
+                        result.getOriginalSize(), result.getOptimizedSize(), result.getSavedSize()));
+                if (result.getSavedSize() > 0) {
+                    this.optimizedImages++;
+                    this.savedImageBytes += result.getSavedSize();
+                }
+            } catch (ExecutionException e) {
+                log.warning(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            it.remove();
+            archiveFile(layoutPolicy.getPublicationContentDirectory().resolve(local), this.keepStagingFiles);
+        }
+    }
+    
+    private void shutdownImageOptimizer() {
+        if (this.imageExecutor == null) {
+            return;
+        }
+        this.imageExecutor.shutdownNow();
+        log.info(Message.IMAGE_OPTIMIZATION_STATISTICS.with(this.optimizedImages, this.savedImageBytes));
+    }
+
+    /**
+     * Appends the file to the publication archive if the archive is written during the crawl.
+     *
+     * @param path the path of the file in the staging directory.
+     * @param keep {@code true} if the file should be kept in the staging directory.
+     * @throws IOException if an I/O error occurred.
+     */
+    private void archiveFile(Path path, boolean keep) throws IOException {
+        if (this.archive == null) {
+            return;
+        }
+        this.archive.writeEntry(toSlashSeparated(layoutPolicy.getPublicationDirectory().relativize(path)), path);
+        if (!keep) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Generates the publication from all pages and resources added.
+     * 
+     * @return {@code true} if the publication was generated or was found unchanged.
+     */
+    boolean generate() {
+        if (this.cache != null) {
+            log.info(Message.CONVERSION_CACHE_STATISTICS.with(this.cache.getHits(), this.cache.getMisses()));
+        }
+        try {
+            completeImages(true);
+            this.originals.close();
+            if (this.lastModified < 0) {
+                this.lastModified = getLastSavedTime();
+            }
+            writePageList();
+            Path path = layoutPolicy.getPublicationContentDirectory().resolve(PACKAGE_DOCUMENT_NAME);
+            if (this.archive != null) {
+                writeArchive(path);
+            } else {
+                writeNavigationDocument();
+                String fingerprint = computeFingerprint(path);
+                if (isUnchanged(fingerprint)) {
+                    log.info(Message.PUBLICATION_UNCHANGED.with(layoutPolicy.getPublicationFile().toString()));
+                    return true;
+                }
+                try (OutputStream stream = Files.newOutputStream(path)) {
+                    createPackageBuilder().writeTo(stream);
+                }
+                writePublication();
+                Files.write(layoutPolicy.getFingerprintFile(), fingerprint.getBytes(StandardCharsets.US_ASCII));
+            }
+            log.info(Message.COMPLETED.toString());
+            return true;
+        } catch (Exception e) {
+            log.severe(e.getMessage());
+            return false;
+        } finally {
+            shutdownImageOptimizer();
+            closeArchive();
+        }
+    }
+    
+    /**
+     * Releases the resources of the publication abandoned without being generated.
+     * The archive written during the crawl is left unfinished, so it can be recovered later.
+     */
+    void close() {
+        try {
+            this.originals.close();
+        } catch (IOException e) {
+            log.severe(e.getMessage());
+        }
+        shutdownImageOptimizer();
+        closeArchive();
+    }
+
+    private PackageDocumentBuilder createPackageBuilder() {
+        log.info(Message.GENERATING_PACKAGE_DOCUMENT.with(PACKAGE_DOCUMENT_NAME));
+        PackageDocumentBuilder builder = new PackageDocumentBuilder();
+        builder.pages(this.pages).resources(this.resources).navigation(Paths.get(NAVIGATION_DOCUMENT_NAME));
+        buildPackage(builder);
+        return builder;
+    }
+    
+    /**
+     * Creates the navigation document from the outlines collected while the pages were converted.
+     */
+    private NavigationDocumentBuilder createNavigationBuilder() {
+        log.info(Message.GENERATING_NAVIGATION_DOCUMENT.with(NAVIGATION_DOCUMENT_NAME));
+        NavigationDocumentBuilder builder = new NavigationDocumentBuilder();
+        builder.title(metadata.getTitle()).language(metadata.getLanguage());
+        for (int i = 0; i < this.pages.size(); i++) {
+            this.outlines.get(i).addTo(builder, this.pages.get(i));
+        }
+        return builder;
+    }
+    
+    private void writeNavigationDocument() throws IOException {
+        Path path = layoutPolicy.getPublicationContentDirectory().resolve(NAVIGATION_DOCUMENT_NAME);
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            createNavigationBuilder().writeTo(stream);
+        }
+    }
+
+    private void buildPackage(PackageDocumentBuilder builder) {
+        builder.identifier(this.identifier)
+               .lastModified(OffsetDateTime.ofInstant(Instant.ofEpochMilli(this.lastModified), ZoneOffset.UTC))
+               .title(metadata.getTitle())
+               .language(metadata.getLanguage())
+               .authors(metadata.getAuthors())
+               .rights(metadata.getRights());
+    }
+
+    /**
+     * Computes the fingerprint over everything the publication is generated from,
+     * except the time of the build.
+     *
+     * @param packagePath the path of the package document, which is excluded.
+     */
+    private String computeFingerprint(Path packagePath) throws IOException {
+        PublicationFingerprint fingerprint = new PublicationFingerprint();
+        fingerprint.add(this.identifier)
+                   .add(metadata.getTitle())
+                   .add(metadata.getLanguage())
+                   .add(metadata.getAuthors())
+                   .add(metadata.getRights());
+        for (Path page: this.pages) {
+            fingerprint.add(toSlashSeparated(page));
+        }
+        fingerprint.add(this.pages.size());
+        for (Map.Entry<Path, String> resource: this.resources.entrySet()) {
+            fingerprint.add(toSlashSeparated(resource.getKey())).add(resource.getValue());
+        }
+        fingerprint.add(this.resources.size());
+        // only the files packaged in the publication, leaving out reports written next to them.
+        Path baseDir = layoutPolicy.getPublicationDirectory();
+        List<Path> packaged = Arrays.asList(
+                baseDir.resolve("mimetype"),
+                layoutPolicy.getPublicationMetaDirectory(),
+                layoutPolicy.getPublicationContentDirectory());
+        fingerprint.addFiles(baseDir, packaged, packagePath);
+        return fingerprint.compute();
+    }
+
+    private boolean isUnchanged(String fingerprint) throws IOException {
+        Path file = layoutPolicy.getFingerprintFile();
+        if (!Files.exists(file) || !Files.exists(layoutPolicy.getPublicationFile())) {
+            return false;
+        }
+        String previous = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII);
+        return previous.equals(fingerprint);
+    }
+
+    /**
+     * Records the reading order of the pages for later rebuilds.
+     */
+    private void writePageList() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Path page: this.pages) {
+            lines.add(toSlashSeparated(page));
+        }
+        Path list = layoutPolicy.getPageListFile();
+        Files.createDirectories(list.getParent());
+        Files.write(list, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Completes the archive written during the crawl, 
+     * with the navigation document and the package document as its last entries.
+     */
+    private void writeArchive(Path packagePath) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        createNavigationBuilder().writeTo(stream);
+        archiveDocument(packagePath.resolveSibling(NAVIGATION_DOCUMENT_NAME), stream.toByteArray());
+        stream.reset();
+        createPackageBuilder().writeTo(stream);
+        archiveDocument(packagePath, stream.toByteArray());
+        log.info(Message.GENERATING_PUBLICATION.with(layoutPolicy.getPublicationFile().toString()));
+        this.archive.finish();
+    }
+
+    private void archiveDocument(Path path, byte[] content) throws IOException {
+        if (this.keepStagingFiles) {
+            Files.write(path, content);
+        }
+        String name = toSlashSeparated(layoutPolicy.getPublicationDirectory().relativize(path));
+        this.archive.writeEntry(name, content);
+    }
+    
+    private void closeArchive() {
+        if (this.archive == null) {
+            return;
+        }
+        try {
+            this.archive.close();
+        } catch (IOException e) {
+            log.severe(e.getMessage());
+        }
+        this.archive = null;
+    }
+
+    private void writePublication() throws IOException {
+        Path baseDir = layoutPolicy.getPublicationDirectory();
+        Path target = layoutPolicy.getPublicationFile();
+        log.info(Message.GENERATING_PUBLICATION.with(target.toString()));
+        PublicationWriter writer = new PublicationWriter(baseDir);
+        writer.setLastModified(this.lastModified);
+        if (this.incrementalUpdate) {
+            writer.setPreviousPublication(target);
+        }
+        writer.writeTo(target);
+        if (this.incrementalUpdate) {
+            log.info(Message.ARCHIVE_ENTRIES_REUSED.with(writer.getReusedEntries()));
+        }
+    }
+
+    private void writeContentDocument(Document doc, Path path) throws Exception {
+        this.htmlWriter.writeDocumentAt(path, doc);
+    }
+
+    private void copyResource(String name, Path targetDir) throws IOException {
+        Files.createDirectories(targetDir);
+        Path target = targetDir.resolve(name);
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Derives the identifier of the publication from the configuration, unless it was given explicitly.
+     */
+    private static String identifierOf(CrawlerConfiguration conf) {
+        String identifier = conf.getMetadata().getIdentifier();
+        if (identifier != null) {
+            return identifier;
+        }
+        String source = conf.getRootLocation() + "\n" + conf.getPublicationName();
+        return "urn:uuid:" + UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the time of the build, which can be fixed by {@code SOURCE_DATE_EPOCH} or by the metadata 
+     * for reproducible builds.
+     * 
+     * @return the time of the build, or -1 if the time should be derived from the saved pages.
+     */
+    private static long getBuildTime(Metadata metadata) {
+        String epoch = System.getenv("SOURCE_DATE_EPOCH");
+        if (epoch != null) {
+            try {
+                return Long.parseLong(epoch.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                log.warning(e.getMessage());
+            }
+        }
+        String modified = metadata.getModified();
+        if (modified != null) {
+            try {
+                return OffsetDateTime.parse(modified.trim()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                log.warning(e.getMessage());
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the time when the newest page was saved, 
+     * so that rebuilding the publication from the same pages gives the same time.
+     */
+    private long getLastSavedTime() throws IOException {
+        Path directory = layoutPolicy.getOriginalDirectory();
+        Path pageList = layoutPolicy.getPageListFile();
+        long newest = 0;
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> stream = Files.walk(directory)) {
+                newest = stream.filter(Files::isRegularFile)
+                               .filter(path->!path.equals(pageList))
+                               .mapToLong(path->path.toFile().lastModified())
+                               .max().orElse(0);
+            }
+        }
+        return (newest > 0) ? newest : System.currentTimeMillis();
+    }
+
+    private static String toSlashSeparated(Path path) {
+        return path.toString().replaceAll("\\\\", "/");
+    }
+}
@@ -0,0 +1,132 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Fingerprint over all inputs of a publication.
+ * 
+ * <p>If the fingerprint of a build is the same as the previous one, 
+ * the publication would be generated byte for byte as before,
+ * so packaging the publication can be skipped.</p>
+ */
+class PublicationFingerprint {
+
+    /*
+     * Version of the fingerprint, which should be incremented
+     * whenever the output of the publication writer changes.
+     */
+    private static final String VERSION = "3";
+    
+    private final MessageDigest digest;
+    private final byte[] buffer;
+    
+    PublicationFingerprint() {
+        this.digest = ConversionCache.newDigest();
+        this.buffer = new byte[64 * 1024];
+        add(VERSION);
+    }
+    
+    /**
+     * Adds a value to the fingerprint.
+     * 
+     * @param value the value to add, can be {@code null}.
+     * @return this fingerprint.
+     */
+    PublicationFingerprint add(Object value) {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        addLength(bytes.length);
+        digest.update(bytes);
+        return this;
+    }
+    
+    /**
+     * Adds the names and contents of the files, and of all files in the directories, 
+     * which will be packaged in the publication.
+     * Hidden directories and the excluded file are skipped.
+     * 
+     * @param baseDir the directory against which the names are resolved.
+     * @param roots the files and directories to add, which are in the base directory.
+     * @param excluded the file to exclude, which will be generated from the other inputs.
+     * @return this fingerprint.
+     * @throws IOException if an error occurred while reading the files.
+     */
+    PublicationFingerprint addFiles(Path baseDir, List<Path> roots, Path excluded) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root: roots) {
+            if (!Files.exists(root)) {
+                continue;
+            }
+            try (Stream<Path> stream = Files.walk(root)) {
+                stream.filter(Files::isRegularFile)
+                      .filter(path->!path.equals(excluded))
+                      .map(baseDir::relativize)
+                      .filter(PublicationFingerprint::isVisible)
+                      .forEach(files::add);
+            }
+        }
+        Collections.sort(files);
+        for (Path file: files) {
+            add(file.toString().replace('\\', '/'));
+            addFile(baseDir.resolve(file));
+        }
+        return this;
+    }
+    
+    /**
+     * Computes the fingerprint.
+     * 
+     * @return the fingerprint in hexadecimal.
+     */
+    String compute() {
+        return ConversionCache.toHex(digest.digest());
+    }
+
+    private void addFile(Path path) throws IOException {
+        addLength(Files.size(path));
+        try (InputStream in = Files.newInputStream(path)) {
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, len);
+            }
+        }
+    }
+    
+    private void addLength(long length) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte)(length >>> shift));
+        }
+    }
+    
+    private static boolean isVisible(Path relative) {
+        for (Path name: relative) {
+            if (name.toString().startsWith(".")) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.crawlers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import io.github.i49.spine.converters.DocumentConverter;
+import io.github.i49.spine.message.Message;
+
+/**
+ * Rebuilder of a publication from the pages saved by the previous crawl.
+ * 
+ * <p>No page or resource is loaded from the network.
+ * The saved pages are converted concurrently by all available processors.</p>
+ */
+public class Rebuilder {
+
+    private static final Logger log = Logger.getLogger(Rebuilder.class.getName());
+    
+    private Publication publication;
+    private int parallelism;
+    
+    public Rebuilder() {
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+    
+    public void configure(CrawlerConfiguration conf) throws Exception {
+        Path workingDirectory = Paths.get(".");
+        this.publication = new Publication(conf, workingDirectory);
+    }
+    
+    public void addConverter(DocumentConverter converter) {
+        this.publication.addConverter(converter);
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * Rebuilds the publication.
+     * 
+     * @throws Exception if an error occurred while rebuilding the publication.
+     */
+    public void rebuild() throws Exception {
+        this.publication.initializeDirectories();
+        this.publication.prepareConverters();
+        List<Path> pages = this.publication.listOriginals();
+        log.info(Message.REBUILDING_PUBLICATION.with(pages.size(), this.parallelism));
+        
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism);
+        try {
+            List<Future<PageOutline>> results = new ArrayList<>();
+            for (Path page: pages) {
+                results.add(executor.submit(()->this.publication.convertOriginal(page)));
+            }
+            // pages are added in their reading order.
+            for (int i = 0; i < pages.size(); i++) {
+                addPage(pages.get(i), results.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        this.publication.generate();
+    }
+    
+    /**
+     * Copies the page saved by the previous crawl.
+     * 
+     * @param local the local path of the page.
+     * @param out the stream to which the page will be copied.
+     * @throws IOException if the page was not found or an error occurred while copying the page.
+     */
+    public void copyOriginal(Path local, OutputStream out) throws IOException {
+        try (InputStream in = this.publication.openOriginal(local)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+        }
+        out.flush();
+    }
+    
+    private void addPage(Path local, Future<PageOutline> result) throws Exception {
+        try {
+            PageOutline outline = result.get();
+            log.info(Message.PAGE_WAS_SAVED.with(local));
+            String location = this.publication.mapToRemoteLocation(local);
+            this.publication.addPage(local, location, outline, this::handleMissingResource);
+        } catch (ExecutionException e) {
+            log.severe(e.getCause().getMessage());
+        }
+    }
+    
+    private void handleMissingResource(URI remote, Path local) {
+        log.warning(Message.RESOURCE_NOT_FOUND.with(remote.toString()));
+    }
+}
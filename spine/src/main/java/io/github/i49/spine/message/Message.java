@@ -17,32 +17,84 @@ package io.github.i49.spine.message;
 
 import java.text.MessageFormat;
 import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Localized messages.
  */
 public enum Message {
     CRAWLER_CONFIGURATION_NOT_FOUND,
+    CRAWLER_CONFIGURATION_EMPTY,
     UNSUPPORTED_CRAWLER_TYPE,
+    UNSUPPORTED_CONVERTER_COMMAND,
+    CONVERTER_NOT_STREAMABLE,
+    ATTRIBUTE_PREFIX_NOT_SPECIFIED,
+    STYLESHEET_NOT_SPECIFIED,
+    STYLESHEET_NOT_COMPILED,
+    STYLESHEET_NOT_ABSOLUTE,
+    SCRIPT_NOT_SPECIFIED,
     DOCUMENT_LOADING_FAILED,
+    NEXT_PAGE_NOT_FOUND,
     PAGE_WAS_SAVED,
+    FIRST_PAGE_SAVED,
+    PAGE_NOT_EXTRACTED,
+    PAGE_NOT_PARSED,
+    PROFILE_WRITTEN,
+    WARC_RECORDING_STARTED,
+    WARC_REPLAY_STARTED,
+    RESOURCE_NOT_ARCHIVED,
     PAGE_WAS_SKIPPED,
     DOWNLOADING_RESOURCE,
+    RESOURCE_NOT_FOUND,
+    REBUILDING_PUBLICATION,
+    CONVERSION_CACHE_STATISTICS,
+    CONVERSION_CACHE_ENTRY_DISCARDED,
+    IMAGE_WAS_OPTIMIZED,
+    IMAGE_OPTIMIZATION_STATISTICS,
     GENERATING_PACKAGE_DOCUMENT,
+    GENERATING_NAVIGATION_DOCUMENT,
     GENERATING_PUBLICATION,
+    ARCHIVE_ENTRIES_REUSED,
+    PREVIOUS_PUBLICATION_IGNORED,
+    PUBLICATION_UNCHANGED,
+    RECOVERING_PUBLICATION,
+    BATCH_STARTED,
+    PUBLICATION_SUCCEEDED,
+    PUBLICATION_FAILED,
+    BATCH_COMPLETED,
+    JOB_SERVER_STARTED,
+    JOB_SUBMITTED,
     COMPLETED
     ;
   
     private static final String BASE_NAME = "io.github.i49.spine.message.messages";
     private static final ResourceBundle bundle = ResourceBundle.getBundle(BASE_NAME);
    
+    // the parsed pattern, which is not thread-safe.
+    private final ThreadLocal<MessageFormat> format = ThreadLocal.withInitial(()->new MessageFormat(getPattern()));
+    
     @Override
     public String toString() {
         return getPattern();
     }
 
     public String with(Object... arguments) {
-        return MessageFormat.format(getPattern(), arguments);
+        return format.get().format(arguments);
+    }
+
+    /**
+     * Logs this message, leaving the formatting to the handler.
+     * No work is done by the caller if the level is not enabled.
+     * 
+     * @param logger the logger.
+     * @param level the level of the message.
+     * @param arguments the arguments of this message.
+     */
+    public void log(Logger logger, Level level, Object... arguments) {
+        if (logger.isLoggable(level)) {
+            logger.log(level, getPattern(), arguments);
+        }
     }
 
     private String getPattern() {
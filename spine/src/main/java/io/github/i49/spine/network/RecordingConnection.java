@@ -0,0 +1,331 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URI;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * HTTP connection which records the exchange into the WARC file
+ * while the response body is read by the client.
+ * 
+ * <p>All operations are delegated to the connection made by the default handler of the protocol.
+ * The exchange is recorded when the body was read to the end, or the stream or the connection was closed.</p>
+ */
+class RecordingConnection extends HttpURLConnection {
+
+    private static final Logger log = Logger.getLogger(RecordingConnection.class.getName());
+    
+    private final HttpURLConnection delegate;
+    private final WarcWriter writer;
+    private Map<String, List<String>> requestHeaders;
+    private ByteArrayOutputStream body;
+    private boolean recorded;
+    
+    RecordingConnection(URL url, HttpURLConnection delegate, WarcWriter writer) {
+        super(url);
+        this.delegate = delegate;
+        this.writer = writer;
+    }
+    
+    @Override
+    public void connect() throws IOException {
+        captureRequestHeaders();
+        delegate.connect();
+        this.connected = true;
+    }
+    
+    @Override
+    public void disconnect() {
+        record();
+        delegate.disconnect();
+    }
+    
+    @Override
+    public boolean usingProxy() {
+        return delegate.usingProxy();
+    }
+    
+    @Override
+    public InputStream getInputStream() throws IOException {
+        captureRequestHeaders();
+        return new RecordingStream(delegate.getInputStream());
+    }
+    
+    @Override
+    public InputStream getErrorStream() {
+        captureRequestHeaders();
+        InputStream stream = delegate.getErrorStream();
+        return (stream != null) ? new RecordingStream(stream) : null;
+    }
+    
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        captureRequestHeaders();
+        return delegate.getOutputStream();
+    }
+    
+    @Override
+    public int getResponseCode() throws IOException {
+        captureRequestHeaders();
+        return delegate.getResponseCode();
+    }
+    
+    @Override
+    public String getResponseMessage() throws IOException {
+        return delegate.getResponseMessage();
+    }
+    
+    @Override
+    public String getHeaderField(String name) {
+        return delegate.getHeaderField(name);
+    }
+    
+    @Override
+    public String getHeaderField(int n) {
+        return delegate.getHeaderField(n);
+    }
+    
+    @Override
+    public String getHeaderFieldKey(int n) {
+        return delegate.getHeaderFieldKey(n);
+    }
+    
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        return delegate.getHeaderFields();
+    }
+    
+    @Override
+    public void setRequestMethod(String method) throws ProtocolException {
+        delegate.setRequestMethod(method);
+    }
+    
+    @Override
+    public String getRequestMethod() {
+        return delegate.getRequestMethod();
+    }
+    
+    @Override
+    public void setRequestProperty(String key, String value) {
+        delegate.setRequestProperty(key, value);
+    }
+    
+    @Override
+    public void addRequestProperty(String key, String value) {
+        delegate.addRequestProperty(key, value);
+    }
+    
+    @Override
+    public String getRequestProperty(String key) {
+        return delegate.getRequestProperty(key);
+    }
+    
+    @Override
+    public Map<String, List<String>> getRequestProperties() {
+        return delegate.getRequestProperties();
+    }
+    
+    @Override
+    public void setInstanceFollowRedirects(boolean followRedirects) {
+        delegate.setInstanceFollowRedirects(followRedirects);
+    }
+    
+    @Override
+    public boolean getInstanceFollowRedirects() {
+        return delegate.getInstanceFollowRedirects();
+    }
+    
+    @Override
+    public void setFixedLengthStreamingMode(int contentLength) {
+        delegate.setFixedLengthStreamingMode(contentLength);
+    }
+    
+    @Override
+    public void setFixedLengthStreamingMode(long contentLength) {
+        delegate.setFixedLengthStreamingMode(contentLength);
+    }
+    
+    @Override
+    public void setChunkedStreamingMode(int chunkLength) {
+        delegate.setChunkedStreamingMode(chunkLength);
+    }
+    
+    @Override
+    public void setConnectTimeout(int timeout) {
+        delegate.setConnectTimeout(timeout);
+    }
+    
+    @Override
+    public int getConnectTimeout() {
+        return delegate.getConnectTimeout();
+    }
+    
+    @Override
+    public void setReadTimeout(int timeout) {
+        delegate.setReadTimeout(timeout);
+    }
+    
+    @Override
+    public int getReadTimeout() {
+        return delegate.getReadTimeout();
+    }
+    
+    @Override
+    public void setDoInput(boolean doInput) {
+        delegate.setDoInput(doInput);
+    }
+    
+    @Override
+    public boolean getDoInput() {
+        return delegate.getDoInput();
+    }
+    
+    @Override
+    public void setDoOutput(boolean doOutput) {
+        delegate.setDoOutput(doOutput);
+    }
+    
+    @Override
+    public boolean getDoOutput() {
+        return delegate.getDoOutput();
+    }
+    
+    @Override
+    public void setUseCaches(boolean useCaches) {
+        delegate.setUseCaches(useCaches);
+    }
+    
+    @Override
+    public boolean getUseCaches() {
+        return delegate.getUseCaches();
+    }
+    
+    @Override
+    public void setIfModifiedSince(long ifModifiedSince) {
+        delegate.setIfModifiedSince(ifModifiedSince);
+    }
+    
+    @Override
+    public long getIfModifiedSince() {
+        return delegate.getIfModifiedSince();
+    }
+    
+    @Override
+    public void setAllowUserInteraction(boolean allowUserInteraction) {
+        delegate.setAllowUserInteraction(allowUserInteraction);
+    }
+    
+    /**
+     * Keeps the request headers, which cannot be read after the request was sent.
+     */
+    private void captureRequestHeaders() {
+        if (this.requestHeaders == null) {
+            try {
+                this.requestHeaders = new LinkedHashMap<>(delegate.getRequestProperties());
+            } catch (IllegalStateException e) {
+                this.requestHeaders = new LinkedHashMap<>();
+            }
+        }
+    }
+    
+    private synchronized void record() {
+        if (this.recorded || (this.body == null && !this.connected)) {
+            return;
+        }
+        this.recorded = true;
+        try {
+            String statusLine = delegate.getHeaderField(0);
+            if (statusLine == null) {
+                return;
+            }
+            Map<String, List<String>> headers = delegate.getHeaderFields();
+            byte[] content = (this.body != null) ? this.body.toByteArray() : new byte[0];
+            // URL.toURI() rejects characters such as spaces which are accepted by the URL.
+            URI uri = URI.create(WarcArchive.normalizeUri(getURL().toExternalForm()));
+            String id = writer.writeResponse(uri, statusLine, headers, content);
+            writer.writeRequest(uri, delegate.getRequestMethod(), requestHeaders, id);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warning(e.getMessage());
+        }
+    }
+    
+    /**
+     * Stream which keeps a copy of the response body.
+     */
+    private class RecordingStream extends FilterInputStream {
+        
+        RecordingStream(InputStream in) {
+            super(in);
+            synchronized (RecordingConnection.this) {
+                if (body == null) {
+                    body = new ByteArrayOutputStream();
+                }
+            }
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                body.write(b);
+            } else {
+                record();
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                body.write(b, off, read);
+            } else if (read < 0) {
+                record();
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int)Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            record();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import io.github.i49.spine.message.Message;
+
+/**
+ * HTTP connection which serves the response recorded in the WARC file, without accessing the network.
+ * 
+ * <p>A request for a URI not found in the archive is answered with 404 Not Found.</p>
+ */
+class ReplayedConnection extends HttpURLConnection {
+
+    private static final Logger log = Logger.getLogger(ReplayedConnection.class.getName());
+    private static final String NOT_FOUND_LINE = "HTTP/1.1 404 Not Found";
+    
+    private final WarcArchive archive;
+    private WarcArchive.Response response;
+    private List<String> headerNames;
+    private List<String> headerValues;
+    
+    ReplayedConnection(URL url, WarcArchive archive) {
+        super(url);
+        this.archive = archive;
+    }
+    
+    @Override
+    public void connect() throws IOException {
+        if (this.connected) {
+            return;
+        }
+        String uri = getURL().toExternalForm();
+        // normalized by the archive in the same way as the URI recorded.
+        this.response = archive.get(uri);
+        if (this.response == null) {
+            log.warning(Message.RESOURCE_NOT_ARCHIVED.with(uri));
+        }
+        this.headerNames = new ArrayList<>();
+        this.headerValues = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry: responseHeaders().entrySet()) {
+            for (String value: entry.getValue()) {
+                this.headerNames.add(entry.getKey());
+                this.headerValues.add(value);
+            }
+        }
+        this.connected = true;
+    }
+    
+    @Override
+    public void disconnect() {
+    }
+    
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+    
+    @Override
+    public int getResponseCode() throws IOException {
+        connect();
+        return (response != null) ? response.getStatusCode() : HTTP_NOT_FOUND;
+    }
+    
+    @Override
+    public String getResponseMessage() throws IOException {
+        connect();
+        return (response != null) ? response.getMessage() : "Not Found";
+    }
+    
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (getResponseCode() >= HTTP_BAD_REQUEST) {
+            throw new FileNotFoundException(getURL().toExternalForm());
+        }
+        return new ByteArrayInputStream(response.getBody());
+    }
+    
+    @Override
+    public InputStream getErrorStream() {
+        if (!this.connected) {
+            return null;
+        } else if (response == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        } else if (response.getStatusCode() >= HTTP_BAD_REQUEST) {
+            return new ByteArrayInputStream(response.getBody());
+        }
+        return null;
+    }
+    
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        // the request body is discarded.
+        return new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        };
+    }
+    
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        if (!ensureConnected()) {
+            return Collections.emptyMap();
+        }
+        return responseHeaders();
+    }
+    
+    private Map<String, List<String>> responseHeaders() {
+        if (response != null) {
+            return Collections.unmodifiableMap(response.getHeaders());
+        }
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put(null, Collections.singletonList(NOT_FOUND_LINE));
+        headers.put("Content-Length", Collections.singletonList("0"));
+        return headers;
+    }
+    
+    @Override
+    public String getHeaderField(String name) {
+        if (!ensureConnected()) {
+            return null;
+        }
+        String found = null;
+        for (int i = 0; i < headerNames.size(); i++) {
+            String key = headerNames.get(i);
+            if (name == null ? key == null : name.equalsIgnoreCase(key)) {
+                found = headerValues.get(i);
+            }
+        }
+        return found;
+    }
+    
+    @Override
+    public String getHeaderField(int n) {
+        if (!ensureConnected() || n < 0 || n >= headerValues.size()) {
+            return null;
+        }
+        return headerValues.get(n);
+    }
+    
+    @Override
+    public String getHeaderFieldKey(int n) {
+        if (!ensureConnected() || n < 0 || n >= headerNames.size()) {
+            return null;
+        }
+        return headerNames.get(n);
+    }
+    
+    private boolean ensureConnected() {
+        try {
+            connect();
+            return true;
+        } catch (IOException e) {
+            log.warning(e.getMessage());
+            return false;
+        }
+    }
+}
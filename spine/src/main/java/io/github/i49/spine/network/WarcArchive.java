@@ -0,0 +1,345 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.network;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WARC file which serves the recorded responses.
+ * 
+ * <p>The file is scanned once when opened, and only the positions of the response records
+ * are kept in memory. The content of a record is read from the file when requested.
+ * When the same URI was recorded more than once, the first response is served.</p>
+ */
+public class WarcArchive implements AutoCloseable {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    // characters allowed in URIs as they are, including the percent of the existing escapes.
+    private static final String ALLOWED_SYMBOLS = "-._~:/?#[]@!$&'()*+,;=%";
+    
+    private final FileChannel channel;
+    private final Map<String, Entry> entries;
+    
+    /**
+     * Opens the WARC file.
+     * 
+     * @param path the path of the WARC file, which must not be compressed.
+     * @throws IOException if an error occurred while reading the file, or the file is not a valid WARC file.
+     */
+    public WarcArchive(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.entries = new HashMap<>();
+        scan(path);
+    }
+    
+    /**
+     * Returns the number of the responses in this archive.
+     * 
+     * @return the number of the responses.
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Finds the recorded response.
+     * 
+     * @param uri the target URI of the response.
+     * @return the response found, or {@code null} if the URI was not recorded.
+     * @throws IOException if an error occurred while reading the file.
+     */
+    public Response get(String uri) throws IOException {
+        Entry entry = entries.get(normalizeUri(uri));
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        long position = entry.offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+        return Response.parse(buffer.array());
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private void scan(Path path) throws IOException {
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            String version;
+            while ((version = readLine(in)) != null) {
+                if (version.isEmpty()) {
+                    // blank lines separating the records.
+                    continue;
+                }
+                if (!version.startsWith("WARC/")) {
+                    throw new IOException("Invalid WARC record at " + in.count);
+                }
+                Map<String, String> fields = readFields(in);
+                int length = Integer.parseInt(fields.getOrDefault("content-length", "0"));
+                long offset = in.count;
+                String uri = fields.get("warc-target-uri");
+                if ("response".equals(fields.get("warc-type")) && uri != null) {
+                    entries.putIfAbsent(normalizeUri(uri), new Entry(offset, length));
+                }
+                skipFully(in, length);
+            }
+        }
+    }
+    
+    /**
+     * Normalizes the target URI, so that the URI recorded and the URI requested later are found equal.
+     * The fragment is removed, and characters not allowed in URIs, such as spaces, 
+     * are percent-encoded in UTF-8, while the existing escapes are kept.
+     * 
+     * @param uri the URI or URL to normalize.
+     * @return the normalized URI.
+     */
+    static String normalizeUri(String uri) {
+        int fragment = uri.indexOf('#');
+        if (fragment >= 0) {
+            uri = uri.substring(0, fragment);
+        }
+        StringBuilder b = null;
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (isAllowed(c)) {
+                if (b != null) {
+                    b.append(c);
+                }
+                continue;
+            }
+            if (b == null) {
+                b = new StringBuilder(uri.length() + 16).append(uri, 0, i);
+            }
+            int end = (Character.isHighSurrogate(c) && i + 1 < uri.length()) ? i + 2 : i + 1;
+            for (byte octet: uri.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+                b.append('%').append(HEX_DIGITS[(octet >> 4) & 0xf]).append(HEX_DIGITS[octet & 0xf]);
+            }
+            i = end - 1;
+        }
+        return (b != null) ? b.toString() : uri;
+    }
+    
+    private static boolean isAllowed(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+               ALLOWED_SYMBOLS.indexOf(c) >= 0;
+    }
+    
+    private static Map<String, String> readFields(InputStream in) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                fields.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * Reads a line terminated by CRLF or LF.
+     * 
+     * @return the line without the terminator, or {@code null} if the end of the stream was reached.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                break;
+            }
+            line.write(b);
+        }
+        if (b < 0 && line.size() == 0) {
+            return null;
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    private static void skipFully(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+    
+    /**
+     * HTTP response recorded in the archive.
+     */
+    public static class Response {
+        
+        private final int statusCode;
+        private final String message;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        
+        private Response(int statusCode, String message, Map<String, List<String>> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.message = message;
+            this.headers = headers;
+            this.body = body;
+        }
+        
+        public int getStatusCode() {
+            return statusCode;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        /**
+         * Returns the headers of the response. 
+         * The status line is mapped from the {@code null} key as {@link java.net.HttpURLConnection} does.
+         * 
+         * @return the headers of the response.
+         */
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+        
+        public byte[] getBody() {
+            return body;
+        }
+        
+        private static Response parse(byte[] block) throws IOException {
+            int position = 0;
+            List<String> lines = new ArrayList<>();
+            while (true) {
+                int end = indexOf(block, (byte)'\n', position);
+                if (end < 0) {
+                    throw new IOException("Invalid HTTP response in WARC record");
+                }
+                int lineEnd = (end > position && block[end - 1] == '\r') ? end - 1 : end;
+                String line = new String(block, position, lineEnd - position, StandardCharsets.ISO_8859_1);
+                position = end + 1;
+                if (line.isEmpty()) {
+                    break;
+                }
+                lines.add(line);
+            }
+            if (lines.isEmpty()) {
+                throw new IOException("Invalid HTTP response in WARC record");
+            }
+            String statusLine = lines.get(0);
+            String[] parts = statusLine.split(" ", 3);
+            int statusCode = Integer.parseInt(parts[1]);
+            String message = (parts.length > 2) ? parts[2] : "";
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            headers.put(null, Collections.singletonList(statusLine));
+            for (String line: lines.subList(1, lines.size())) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    String name = line.substring(0, colon).trim();
+                    headers.computeIfAbsent(name, k->new ArrayList<>()).add(line.substring(colon + 1).trim());
+                }
+            }
+            byte[] body = new byte[block.length - position];
+            System.arraycopy(block, position, body, 0, body.length);
+            return new Response(statusCode, message, headers, body);
+        }
+        
+        private static int indexOf(byte[] bytes, byte b, int from) {
+            for (int i = from; i < bytes.length; i++) {
+                if (bytes[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+    
+    private static class Entry {
+        
+        private final long offset;
+        private final int length;
+        
+        Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+    
+    private static class CountingInputStream extends FilterInputStream {
+        
+        private long count;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.network;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.net.URLStreamHandlerFactory;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import io.github.i49.spine.message.Message;
+
+/**
+ * Factory of the handlers which record the HTTP exchanges into a WARC file,
+ * or replay them from a WARC file.
+ * 
+ * <p>Both the web engine and the downloader of the resources open their connections through {@link URL},
+ * so the handlers see every exchange of the crawl. 
+ * The factory must be installed before the web engine is created.</p>
+ */
+public class WarcStreamHandlerFactory implements URLStreamHandlerFactory {
+
+    private static final Logger log = Logger.getLogger(WarcStreamHandlerFactory.class.getName());
+    
+    // The web engine loads pages with java.net.http.HttpClient unless this property is false.
+    private static final String HTTP2_LOADER_PROPERTY = "com.sun.webkit.useHTTP2Loader";
+    
+    private final WarcWriter writer;
+    private final WarcArchive archive;
+    // URLs created before this factory is installed, which keep the default handlers.
+    private final URL httpContext;
+    private final URL httpsContext;
+    
+    private WarcStreamHandlerFactory(WarcWriter writer, WarcArchive archive) throws IOException {
+        this.writer = writer;
+        this.archive = archive;
+        this.httpContext = new URL("http://localhost/");
+        this.httpsContext = new URL("https://localhost/");
+    }
+    
+    /**
+     * Records all HTTP exchanges made by this process into the WARC file.
+     * 
+     * @param path the path of the WARC file to write.
+     * @throws IOException if the WARC file could not be created.
+     */
+    public static void record(Path path) throws IOException {
+        WarcWriter writer = new WarcWriter(path);
+        install(new WarcStreamHandlerFactory(writer, null));
+        Runtime.getRuntime().addShutdownHook(new Thread(()->{
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warning(e.getMessage());
+            }
+        }));
+        log.info(Message.WARC_RECORDING_STARTED.with(path));
+    }
+    
+    /**
+     * Serves all HTTP requests made by this process from the WARC file.
+     * 
+     * @param path the path of the WARC file to read.
+     * @throws IOException if the WARC file could not be read.
+     */
+    public static void replay(Path path) throws IOException {
+        WarcArchive archive = new WarcArchive(path);
+        install(new WarcStreamHandlerFactory(null, archive));
+        log.info(Message.WARC_REPLAY_STARTED.with(path, archive.size()));
+    }
+    
+    private static void install(WarcStreamHandlerFactory factory) {
+        System.setProperty(HTTP2_LOADER_PROPERTY, "false");
+        URL.setURLStreamHandlerFactory(factory);
+    }
+    
+    @Override
+    public URLStreamHandler createURLStreamHandler(String protocol) {
+        if ("http".equals(protocol)) {
+            return new Handler(this.httpContext);
+        } else if ("https".equals(protocol)) {
+            return new Handler(this.httpsContext);
+        }
+        return null;
+    }
+    
+    private class Handler extends URLStreamHandler {
+        
+        private final URL context;
+        
+        Handler(URL context) {
+            this.context = context;
+        }
+        
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            if (archive != null) {
+                return new ReplayedConnection(url, archive);
+            }
+            // resolved against the context, the URL is handled by the default handler.
+            URL target = new URL(context, url.toExternalForm());
+            return new RecordingConnection(url, (HttpURLConnection)target.openConnection(), writer);
+        }
+        
+        @Override
+        protected int getDefaultPort() {
+            return context.getDefaultPort();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/* 
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.github.i49.spine.network;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writer of the records of a WARC file, as defined by ISO 28500 (WARC/1.0).
+ * 
+ * <p>Records are written uncompressed and flushed one by one,
+ * so the file is readable even if the process was terminated.
+ * This class is safe to be used by multiple threads.</p>
+ */
+public class WarcWriter implements AutoCloseable {
+
+    static final String VERSION = "WARC/1.0";
+    static final String CRLF = "\r\n";
+    
+    private final OutputStream out;
+    
+    /**
+     * Creates the WARC file and writes the warcinfo record at the head of the file.
+     * 
+     * @param path the path of the WARC file.
+     * @throws IOException if an error occurred while writing the file.
+     */
+    public WarcWriter(Path path) throws IOException {
+        this.out = new BufferedOutputStream(Files.newOutputStream(path));
+        StringBuilder info = new StringBuilder();
+        info.append("software: spine").append(CRLF);
+        info.append("format: WARC File Format 1.0").append(CRLF);
+        writeRecord("warcinfo", newRecordId(), null, null, "application/warc-fields", 
+                info.toString().getBytes(StandardCharsets.UTF_8), null);
+    }
+    
+    /**
+     * Writes the request record.
+     * 
+     * @param uri the target URI.
+     * @param method the request method.
+     * @param headers the request headers.
+     * @param concurrentTo the identifier of the response record of the same exchange.
+     * @throws IOException if an error occurred while writing the record.
+     */
+    public void writeRequest(URI uri, String method, Map<String, List<String>> headers, String concurrentTo) throws IOException {
+        StringBuilder b = new StringBuilder();
+        String target = uri.getRawPath();
+        if (target == null || target.isEmpty()) {
+            target = "/";
+        }
+        if (uri.getRawQuery() != null) {
+            target += "?" + uri.getRawQuery();
+        }
+        b.append(method).append(' ').append(target).append(" HTTP/1.1").append(CRLF);
+        b.append("Host: ").append(uri.getRawAuthority()).append(CRLF);
+        appendHeaders(headers, b);
+        b.append(CRLF);
+        writeRecord("request", newRecordId(), uri, concurrentTo, "application/http;msgtype=request", 
+                b.toString().getBytes(StandardCharsets.ISO_8859_1), null);
+    }
+    
+    /**
+     * Writes the response record.
+     * 
+     * @param uri the target URI.
+     * @param statusLine the status line of the response.
+     * @param headers the response headers.
+     * @param body the body of the response, as it was received.
+     * @return the identifier of the written record.
+     * @throws IOException if an error occurred while writing the record.
+     */
+    public String writeResponse(URI uri, String statusLine, Map<String, List<String>> headers, byte[] body) throws IOException {
+        StringBuilder b = new StringBuilder();
+        b.append(statusLine).append(CRLF);
+        appendHeaders(headers, b);
+        // the body was already decoded from the chunked transfer coding.
+        b.append("Content-Length: ").append(body.length).append(CRLF);
+        b.append(CRLF);
+        String id = newRecordId();
+        writeRecord("response", id, uri, null, "application/http;msgtype=response", 
+                b.toString().getBytes(StandardCharsets.ISO_8859_1), body);
+        return id;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+    
+    private synchronized void writeRecord(String type, String id, URI uri, String concurrentTo, 
+            String contentType, byte[] head, byte[] body) throws IOException {
+        int length = head.length + ((body != null) ? body.length : 0);
+        StringBuilder b = new StringBuilder();
+        b.append(VERSION).append(CRLF);
+        b.append("WARC-Type: ").append(type).append(CRLF);
+        b.append("WARC-Record-ID: ").append(id).append(CRLF);
+        b.append("WARC-Date: ").append(Instant.now().truncatedTo(ChronoUnit.SECONDS)).append(CRLF);
+        if (uri != null) {
+            b.append("WARC-Target-URI: ").append(uri.toASCIIString()).append(CRLF);
+        }
+        if (concurrentTo != null) {
+            b.append("WARC-Concurrent-To: ").append(concurrentTo).append(CRLF);
+        }
+        b.append("Content-Type: ").append(contentType).append(CRLF);
+        b.append("Content-Length: ").append(length).append(CRLF);
+        b.append(CRLF);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(b.length() + length + 4);
+        record.write(b.toString().getBytes(StandardCharsets.UTF_8));
+        record.write(head);
+        if (body != null) {
+            record.write(body);
+        }
+        record.write((CRLF + CRLF).getBytes(StandardCharsets.US_ASCII));
+        record.writeTo(out);
+        out.flush();
+    }
+    
+    private static void appendHeaders(Map<String, List<String>> headers, StringBuilder b) {
+        for (Map.Entry<String, List<String>> entry: headers.entrySet()) {
+            String name = entry.getKey();
+            if (name == null || name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding")) {
+                continue;
+            }
+            for (String value: entry.getValue()) {
+                b.append(name).append(": ").append(value).append(CRLF);
+            }
+        }
+    }
+    
+    private static String newRecordId() {
+        return "<urn:uuid:" + UUID.randomUUID() + ">";
+    }
+}
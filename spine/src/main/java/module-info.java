@@ -15,10 +15,13 @@
  */
 
 open module spine {
+    requires java.desktop;
     requires java.logging;
+    requires java.management;
     requires java.xml;
     requires javafx.graphics;
     requires javafx.web;
+    requires jdk.httpserver;
     requires jdk.jsobject;
     requires jdk.xml.dom;
     requires snakeyaml;